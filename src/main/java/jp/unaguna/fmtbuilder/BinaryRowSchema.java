@@ -0,0 +1,196 @@
+package jp.unaguna.fmtbuilder;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * BinaryRowSchema describes the fields of fixed-layout binary rows, such as the records in off-heap ring buffers
+ * or memory-mapped files.
+ *
+ * <p>
+ * Each field has a name, a type and an offset from the head of a row.
+ * The values are read by the ValueProvider created by {@link #newProvider(ByteBuffer)}
+ * directly from the buffer, without creating objects for each row.
+ * </p>
+ *
+ * <pre>{@code
+ * final BinaryRowSchema schema = new BinaryRowSchema.Builder()
+ *         .int64("time", 0)
+ *         .int32("status", 8)
+ *         .ascii("host", 12, 16)
+ *         .build();
+ * final BinaryRowValueProvider row = schema.newProvider(buffer);
+ * for (int i = 0; i < rowCount; i++) {
+ *     dataFormat.format(row.moveToRow(i), stringBuilder);
+ * }
+ * }</pre>
+ */
+public final class BinaryRowSchema {
+    /**
+     * The type of a field. Numbers are read in the byte order of the buffer.
+     */
+    public enum FieldType {
+        INT8(1),
+        INT16(2),
+        INT32(4),
+        INT64(8),
+        FLOAT32(4),
+        FLOAT64(8),
+        /**
+         * The ASCII string, which ends at the first NUL byte or at the end of the field.
+         */
+        ASCII(-1),
+        ;
+
+        private final int size;
+
+        FieldType(final int size) {
+            this.size = size;
+        }
+    }
+
+    private final Map<String, FieldSpec> fields;
+    private final List<String> fieldNames;
+    private final int rowSize;
+
+    private BinaryRowSchema(final Builder builder) {
+        this.fields = new LinkedHashMap<>(builder.fields);
+        this.fieldNames = Collections.unmodifiableList(new ArrayList<>(fields.keySet()));
+        this.rowSize = builder.rowSize;
+    }
+
+    /**
+     * Creates a provider which reads the rows in the buffer.
+     *
+     * <p>
+     * The provider is positioned at the first row. It is not thread-safe; create one for each thread.
+     * </p>
+     *
+     * @param buffer the buffer of the rows
+     * @return the new provider
+     */
+    public BinaryRowValueProvider newProvider(final ByteBuffer buffer) {
+        return new BinaryRowValueProvider(this, buffer);
+    }
+
+    /**
+     * Returns the size of a row in bytes.
+     *
+     * @return the size of a row
+     */
+    public int getRowSize() {
+        return this.rowSize;
+    }
+
+    public List<String> getFieldNames() {
+        return this.fieldNames;
+    }
+
+    Collection<FieldSpec> fieldSpecs() {
+        return fields.values();
+    }
+
+    static final class FieldSpec {
+        final String name;
+        final FieldType type;
+        final int offset;
+        final int size;
+
+        FieldSpec(final String name, final FieldType type, final int offset, final int size) {
+            this.name = name;
+            this.type = type;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    public static class Builder {
+        private final Map<String, FieldSpec> fields = new LinkedHashMap<>();
+        private int rowSize = 0;
+        private boolean rowSizeSpecified = false;
+
+        public Builder int8(final String name, final int offset) {
+            return field(name, FieldType.INT8, offset, FieldType.INT8.size);
+        }
+
+        public Builder int16(final String name, final int offset) {
+            return field(name, FieldType.INT16, offset, FieldType.INT16.size);
+        }
+
+        public Builder int32(final String name, final int offset) {
+            return field(name, FieldType.INT32, offset, FieldType.INT32.size);
+        }
+
+        public Builder int64(final String name, final int offset) {
+            return field(name, FieldType.INT64, offset, FieldType.INT64.size);
+        }
+
+        public Builder float32(final String name, final int offset) {
+            return field(name, FieldType.FLOAT32, offset, FieldType.FLOAT32.size);
+        }
+
+        public Builder float64(final String name, final int offset) {
+            return field(name, FieldType.FLOAT64, offset, FieldType.FLOAT64.size);
+        }
+
+        /**
+         * Adds an ASCII string field.
+         *
+         * @param name the field name
+         * @param offset the offset of the field from the head of a row
+         * @param length the maximum number of bytes of the string
+         * @return this builder
+         */
+        public Builder ascii(final String name, final int offset, final int length) {
+            if (length <= 0) {
+                throw new IllegalArgumentException("length must be positive integer");
+            }
+            return field(name, FieldType.ASCII, offset, length);
+        }
+
+        /**
+         * Specifies the size of a row in bytes, including the bytes not used by any field.
+         *
+         * <p>
+         * If it is not specified, the end of the last field is used.
+         * </p>
+         *
+         * @param rowSize the size of a row
+         * @return this builder
+         */
+        public Builder rowSize(final int rowSize) {
+            if (rowSize <= 0) {
+                throw new IllegalArgumentException("rowSize must be positive integer");
+            }
+            this.rowSize = rowSize;
+            this.rowSizeSpecified = true;
+            return this;
+        }
+
+        private Builder field(final String name, final FieldType type, final int offset, final int size) {
+            Objects.requireNonNull(name);
+            if (offset < 0) {
+                throw new IllegalArgumentException("offset must not be negative");
+            }
+            if (fields.containsKey(name)) {
+                throw new IllegalArgumentException("A field named '" + name + "' is already added.");
+            }
+
+            fields.put(name, new FieldSpec(name, type, offset, size));
+            return this;
+        }
+
+        public BinaryRowSchema build() {
+            int end = 0;
+            for (final FieldSpec field : fields.values()) {
+                end = Math.max(end, field.offset + field.size);
+            }
+            if (!rowSizeSpecified) {
+                rowSize = Math.max(end, 1);
+            } else if (rowSize < end) {
+                throw new IllegalStateException("rowSize is smaller than the end of the fields: " + end);
+            }
+            return new BinaryRowSchema(this);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package jp.unaguna.fmtbuilder;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The ValueProvider which reads the fields of a row in a buffer, described by {@link BinaryRowSchema}.
+ *
+ * <p>
+ * The values are returned as CharSequence views which this provider reuses for each field,
+ * and they are appended to the output by {@link DataFormat} without creating any String.
+ * Therefore, a value is valid only until this provider reads the same field again or moves to another row;
+ * call {@code toString()} on it to keep it.
+ * The APIs of this library which retain values, such as the projection buffering of
+ * {@link TableDataFormatIterator} and {@link CachingDataFormat}, copy them.
+ * However, {@link DataFormat#defer(ValueProvider)} reads this provider when the text is used,
+ * so do not move to another row before the deferred text is formatted.
+ * </p>
+ *
+ * <p>
+ * This object is not thread-safe.
+ * </p>
+ */
+public class BinaryRowValueProvider implements ValueProvider {
+    private final BinaryRowSchema schema;
+    private final Map<String, FieldView> views = new HashMap<>();
+    private ByteBuffer buffer;
+    private int rowOffset = 0;
+
+    BinaryRowValueProvider(final BinaryRowSchema schema, final ByteBuffer buffer) {
+        this.schema = schema;
+        this.buffer = Objects.requireNonNull(buffer);
+        for (final BinaryRowSchema.FieldSpec field : schema.fieldSpecs()) {
+            views.put(field.name, newView(field));
+        }
+    }
+
+    /**
+     * Changes the buffer of the rows, and moves to the first row.
+     *
+     * @param buffer the buffer of the rows
+     * @return this provider
+     */
+    public BinaryRowValueProvider setBuffer(final ByteBuffer buffer) {
+        this.buffer = Objects.requireNonNull(buffer);
+        this.rowOffset = 0;
+        return this;
+    }
+
+    /**
+     * Moves to the row at the specified byte offset in the buffer.
+     *
+     * @param rowOffset the absolute byte offset of the head of the row
+     * @return this provider
+     */
+    public BinaryRowValueProvider moveToOffset(final int rowOffset) {
+        if (rowOffset < 0 || rowOffset + schema.getRowSize() > buffer.limit()) {
+            throw new IndexOutOfBoundsException("row offset out of the buffer: " + rowOffset);
+        }
+        this.rowOffset = rowOffset;
+        return this;
+    }
+
+    /**
+     * Moves to the row of the specified index, assuming that the rows are packed from the head of the buffer.
+     *
+     * @param rowIndex the index of the row
+     * @return this provider
+     */
+    public BinaryRowValueProvider moveToRow(final int rowIndex) {
+        return moveToOffset(rowIndex * schema.getRowSize());
+    }
+
+    public int getRowOffset() {
+        return this.rowOffset;
+    }
+
+    /**
+     * Returns the number of rows which the buffer contains.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return buffer.limit() / schema.getRowSize();
+    }
+
+    public BinaryRowSchema getSchema() {
+        return this.schema;
+    }
+
+    @Override
+    public Object get(final String key) {
+        final Object value = find(key);
+        if (value == MISSING) {
+            throw new IllegalArgumentException(key);
+        }
+        return value;
+    }
+
+    @Override
+    public Object find(final String key) {
+        final FieldView view = views.get(key);
+        if (view == null) {
+            return MISSING;
+        }
+        return view.read(buffer, rowOffset);
+    }
+
+    private static FieldView newView(final BinaryRowSchema.FieldSpec field) {
+        switch (field.type) {
+            case INT8:
+                return new IntegerView((buffer, offset) -> buffer.get(offset), field.offset);
+            case INT16:
+                return new IntegerView((buffer, offset) -> buffer.getShort(offset), field.offset);
+            case INT32:
+                return new IntegerView(ByteBuffer::getInt, field.offset);
+            case INT64:
+                return new IntegerView(ByteBuffer::getLong, field.offset);
+            case FLOAT32:
+                return new FloatView(field.offset, false);
+            case FLOAT64:
+                return new FloatView(field.offset, true);
+            case ASCII:
+                return new AsciiView(field.offset, field.size);
+            default:
+                throw new IllegalStateException("unknown field type: " + field.type);
+        }
+    }
+
+    /**
+     * The reusable view of a field.
+     */
+    private interface FieldView {
+        CharSequence read(ByteBuffer buffer, int rowOffset);
+    }
+
+    @FunctionalInterface
+    private interface LongReader {
+        long read(ByteBuffer buffer, int offset);
+    }
+
+    /**
+     * The view of an integer field, which holds the decimal digits of the value.
+     */
+    private static final class IntegerView implements FieldView, CharSequence {
+        // Long.MIN_VALUE has 19 digits and the sign
+        private final char[] chars = new char[20];
+        private final LongReader reader;
+        private final int offset;
+        private int start;
+
+        IntegerView(final LongReader reader, final int offset) {
+            this.reader = reader;
+            this.offset = offset;
+        }
+
+        @Override
+        public CharSequence read(final ByteBuffer buffer, final int rowOffset) {
+            long value = reader.read(buffer, rowOffset + offset);
+
+            // compute with a non-positive value so that Long.MIN_VALUE can be negated
+            final boolean negative = value < 0;
+            if (!negative) {
+                value = -value;
+            }
+            int pos = chars.length;
+            do {
+                chars[--pos] = (char) ('0' - (value % 10));
+                value /= 10;
+            } while (value != 0);
+            if (negative) {
+                chars[--pos] = '-';
+            }
+            start = pos;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return chars.length - start;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return chars[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start, chars.length - start);
+        }
+    }
+
+    /**
+     * The view of a floating-point field.
+     */
+    private static final class FloatView implements FieldView {
+        private final StringBuilder text = new StringBuilder(32);
+        private final int offset;
+        private final boolean isDouble;
+
+        FloatView(final int offset, final boolean isDouble) {
+            this.offset = offset;
+            this.isDouble = isDouble;
+        }
+
+        @Override
+        public CharSequence read(final ByteBuffer buffer, final int rowOffset) {
+            text.setLength(0);
+            if (isDouble) {
+                text.append(buffer.getDouble(rowOffset + offset));
+            } else {
+                text.append(buffer.getFloat(rowOffset + offset));
+            }
+            return text;
+        }
+    }
+
+    /**
+     * The view of an ASCII string field, which reads the bytes in the buffer without copying them.
+     */
+    private static final class AsciiView implements FieldView, CharSequence {
+        private final int offset;
+        private final int size;
+        private ByteBuffer buffer;
+        private int start;
+        private int length;
+
+        AsciiView(final int offset, final int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public CharSequence read(final ByteBuffer buffer, final int rowOffset) {
+            this.buffer = buffer;
+            this.start = rowOffset + offset;
+
+            // the string ends at the first NUL
+            int length = 0;
+            while (length < size && buffer.get(start + length) != 0) {
+                length++;
+            }
+            this.length = length;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+            return (char) (buffer.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            final char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) (buffer.get(start + i) & 0xFF);
+            }
+            return new String(chars);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.*;
+
+/**
+ * The DataFormat whose some variables are bound, created by {@link DataFormat#bind(ValueProvider)}
+ * for implementations which cannot fold the bound values into constants.
+ *
+ * <p>
+ * Since the padding of the variables of such implementations is not known,
+ * all the bound variables remain as variables of this format, and their values are taken from the bound ones.
+ * </p>
+ */
+class BoundDataFormat implements DataFormat {
+    private final DataFormat dataFormat;
+    private final Map<String, Object> boundValues = new HashMap<>();
+
+    BoundDataFormat(final DataFormat dataFormat, final ValueProvider partial) {
+        this.dataFormat = Objects.requireNonNull(dataFormat);
+
+        for (final String variableName : dataFormat.getVariableNames()) {
+            final Object value = partial.find(variableName);
+            if (value != ValueProvider.MISSING) {
+                boundValues.put(variableName, CharSequences.retained(value));
+            }
+        }
+    }
+
+    @Override
+    public String format(final ValueProvider valueProvider) {
+        return dataFormat.format(new BoundValueProvider(valueProvider));
+    }
+
+    @Override
+    public String format(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+        return dataFormat.format(new BoundValueProvider(valueProvider), fieldWidthProvider);
+    }
+
+    @Override
+    public StringBuilder format(final ValueProvider valueProvider, final StringBuilder toAppendTo) {
+        return dataFormat.format(new BoundValueProvider(valueProvider), toAppendTo);
+    }
+
+    @Override
+    public StringBuilder format(
+            final ValueProvider valueProvider,
+            final FieldWidthProvider fieldWidthProvider,
+            final StringBuilder toAppendTo) {
+        return dataFormat.format(new BoundValueProvider(valueProvider), fieldWidthProvider, toAppendTo);
+    }
+
+    @Override
+    public int measure(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+        return dataFormat.measure(new BoundValueProvider(valueProvider), fieldWidthProvider);
+    }
+
+    @Override
+    public int measureUtf8(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+        return dataFormat.measureUtf8(new BoundValueProvider(valueProvider), fieldWidthProvider);
+    }
+
+    @Override
+    public List<String> getVariableNames() {
+        return dataFormat.getVariableNames();
+    }
+
+    /**
+     * Updates the width of each variable with the values of the specified data and the bound values.
+     *
+     * @param valueProvider the data to measure
+     * @param widthHolder the widths to update
+     * @return the sum of the widths of the values
+     */
+    int updateWidth(final ValueProvider valueProvider, final TableFieldHolder widthHolder) {
+        return widthHolder.updateWidth(dataFormat, new BoundValueProvider(valueProvider));
+    }
+
+    /**
+     * The ValueProvider which provides the bound values in preference to the values of the inner provider.
+     */
+    private class BoundValueProvider implements ValueProvider {
+        private final ValueProvider valueProvider;
+
+        BoundValueProvider(final ValueProvider valueProvider) {
+            this.valueProvider = valueProvider;
+        }
+
+        @Override
+        public Object get(final String key) {
+            final Object value = boundValues.get(key);
+            if (value != null || boundValues.containsKey(key)) {
+                return value;
+            }
+            return valueProvider.get(key);
+        }
+
+        @Override
+        public Object find(final String key) {
+            final Object value = boundValues.get(key);
+            if (value != null || boundValues.containsKey(key)) {
+                return value;
+            }
+            return valueProvider.find(key);
+        }
+    }
+}
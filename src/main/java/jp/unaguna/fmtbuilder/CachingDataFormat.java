@@ -0,0 +1,299 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * CachingDataFormat is a DataFormat which memoizes the formatted texts of the inner format.
+ *
+ * <p>
+ * The texts are cached with the tuple of the values of the variables as the key,
+ * or with the key computed by the specified function.
+ * The widths given by the FieldWidthProvider are also a part of the key.
+ * A repeated text, such as a periodic status line, costs a lookup and an append.
+ * At most the specified number of texts are cached, and the least recently used one is evicted.
+ * </p>
+ *
+ * <p>
+ * The values used as the key must not be modified after formatting,
+ * except CharSequences and char arrays, which are copied into the key.
+ * This object can be used from several threads.
+ * </p>
+ */
+public class CachingDataFormat implements DataFormat {
+    private final DataFormat dataFormat;
+    private final int maxSize;
+    private final Function<? super ValueProvider, ?> keyFunction;
+    private final String[] variables;
+    private final Map<Key, String> cache;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Creates the format which caches the texts with the tuple of the values of the variables as the key.
+     *
+     * @param dataFormat the inner format
+     * @param maxSize the maximum number of cached texts
+     */
+    public CachingDataFormat(final DataFormat dataFormat, final int maxSize) {
+        this(dataFormat, maxSize, null);
+    }
+
+    /**
+     * Creates the format which caches the texts with the key computed by the function.
+     *
+     * <p>
+     * The function must return equal keys for the data which are formatted into the same text.
+     * </p>
+     *
+     * @param dataFormat the inner format
+     * @param maxSize the maximum number of cached texts
+     * @param keyFunction the function which computes the key of data;
+     *                    if null, the tuple of the values of the variables is used as the key
+     */
+    public CachingDataFormat(
+            final DataFormat dataFormat,
+            final int maxSize,
+            final Function<? super ValueProvider, ?> keyFunction) {
+
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive integer");
+        }
+
+        this.dataFormat = Objects.requireNonNull(dataFormat);
+        this.maxSize = maxSize;
+        this.keyFunction = keyFunction;
+        this.variables = new LinkedHashSet<>(dataFormat.getVariableNames()).toArray(new String[0]);
+        this.cache = new LruCache(maxSize);
+    }
+
+    @Override
+    public String format(final ValueProvider valueProvider) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        return this.format(valueProvider, stringBuilder)
+                .toString();
+    }
+
+    @Override
+    public String format(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        return this.format(valueProvider, fieldWidthProvider, stringBuilder)
+                .toString();
+    }
+
+    @Override
+    public StringBuilder format(final ValueProvider valueProvider, final StringBuilder toAppendTo) {
+        return format(valueProvider, FieldWidthProvider.empty, toAppendTo);
+    }
+
+    @Override
+    public StringBuilder format(
+            final ValueProvider valueProvider,
+            FieldWidthProvider fieldWidthProvider,
+            final StringBuilder toAppendTo) {
+
+        if (fieldWidthProvider == null) {
+            fieldWidthProvider = FieldWidthProvider.empty;
+        }
+
+        try {
+            final Object[] values;
+            final ValueProvider innerValueProvider;
+            final Object keyBody;
+            if (keyFunction != null) {
+                values = null;
+                innerValueProvider = valueProvider;
+                keyBody = keyFunction.apply(valueProvider);
+            } else {
+                // retrieve each value once; the values are both the key and the input of the inner format.
+                // a reusable CharSequence is copied so that the cached key is not changed by the caller
+                values = new Object[variables.length];
+                for (int i = 0; i < variables.length; i++) {
+                    values[i] = CharSequences.retained(findValue(valueProvider, variables[i]));
+                }
+                innerValueProvider = new RetrievedValueProvider(values, valueProvider);
+                keyBody = null;
+            }
+
+            final Integer[] widths = new Integer[variables.length];
+            for (int i = 0; i < variables.length; i++) {
+                widths[i] = fieldWidthProvider.getWidth(variables[i]);
+            }
+
+            final Key key = new Key(keyBody, values, widths);
+            final String cached;
+            synchronized (cache) {
+                cached = cache.get(key);
+            }
+            if (cached != null) {
+                hitCount.increment();
+                return toAppendTo.append(cached);
+            }
+
+            missCount.increment();
+            final int start = toAppendTo.length();
+            dataFormat.format(innerValueProvider, fieldWidthProvider, toAppendTo);
+            final String text = toAppendTo.substring(start);
+            synchronized (cache) {
+                cache.put(key, text);
+            }
+        } catch (final DataFormattingException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new DataFormattingException("some error occurred during formatting data", e);
+        }
+        return toAppendTo;
+    }
+
+    private static Object findValue(final ValueProvider valueProvider, final String key) {
+        try {
+            return valueProvider.find(key);
+        } catch (IllegalArgumentException e) {
+            // get() reports absence by the exception, as in the inner format
+            final MissingFormatArgumentException missing = new MissingFormatArgumentException(key);
+            missing.initCause(e);
+            throw missing;
+        }
+    }
+
+    @Override
+    public List<String> getVariableNames() {
+        return dataFormat.getVariableNames();
+    }
+
+    public DataFormat getDataFormat() {
+        return this.dataFormat;
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Returns the number of cached texts.
+     *
+     * @return the number of cached texts
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the ratio of the formatting served from the cache.
+     *
+     * @return the hit rate, or 0 if nothing has been formatted
+     */
+    public double getHitRate() {
+        final long hits = hitCount.sum();
+        final long total = hits + missCount.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    /**
+     * Removes all cached texts and resets the statistics.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        hitCount.reset();
+        missCount.reset();
+    }
+
+    /**
+     * The ValueProvider which provides the values already retrieved for the key.
+     */
+    private class RetrievedValueProvider implements ValueProvider {
+        private final Object[] values;
+        private final ValueProvider valueProvider;
+
+        RetrievedValueProvider(final Object[] values, final ValueProvider valueProvider) {
+            this.values = values;
+            this.valueProvider = valueProvider;
+        }
+
+        @Override
+        public Object get(final String key) {
+            final Object value = find(key);
+            if (value == MISSING) {
+                // call the inner provider again to throw its own exception
+                return valueProvider.get(key);
+            }
+            return value;
+        }
+
+        @Override
+        public Object find(final String key) {
+            for (int i = 0; i < variables.length; i++) {
+                if (variables[i].equals(key)) {
+                    return values[i];
+                }
+            }
+            return valueProvider.find(key);
+        }
+    }
+
+    /**
+     * The map which evicts the least recently used entry when its size exceeds the maximum.
+     */
+    private static final class LruCache extends LinkedHashMap<Key, String> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        LruCache(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, String> eldest) {
+            return size() > maxSize;
+        }
+    }
+
+    private static final class Key {
+        private final Object keyBody;
+        private final Object[] values;
+        private final Integer[] widths;
+        private final int hashCode;
+
+        Key(final Object keyBody, final Object[] values, final Integer[] widths) {
+            this.keyBody = keyBody;
+            this.values = values;
+            this.widths = widths;
+            this.hashCode = 31 * (31 * Objects.hashCode(keyBody) + Arrays.hashCode(values)) + Arrays.hashCode(widths);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return hashCode == other.hashCode
+                    && Objects.equals(keyBody, other.keyBody)
+                    && Arrays.equals(values, other.values)
+                    && Arrays.equals(widths, other.widths);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package jp.unaguna.fmtbuilder;
+
+import java.nio.CharBuffer;
+
+/**
+ * Utilities for CharSequences.
+ */
+final class CharSequences {
+    private CharSequences() {
+    }
+
+    /**
+     * Returns the text of the value without copying it if possible.
+     *
+     * <p>
+     * A CharSequence, such as a StringBuilder or a CharBuffer, is returned as it is,
+     * and a char[] is wrapped by a CharBuffer. Other values are converted by {@link Object#toString()}.
+     * Since wrapping a char[] allocates, the formatting path appends a char[] directly instead of calling this.
+     * </p>
+     *
+     * @param value the value
+     * @return the text of the value
+     */
+    static CharSequence textOf(final Object value) {
+        if (value instanceof CharSequence) {
+            return (CharSequence) value;
+        }
+        if (value instanceof char[]) {
+            return CharBuffer.wrap((char[]) value);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Returns the value which can be retained after the call which received it.
+     *
+     * <p>
+     * A CharSequence other than a String and a char[] may be reused or modified by the caller,
+     * so they are copied into Strings. Other values are returned as they are.
+     * Use this before storing a value as a key or in a buffer.
+     * </p>
+     *
+     * @param value the value
+     * @return the value which is not changed by the caller
+     */
+    static Object retained(final Object value) {
+        if (value instanceof String) {
+            return value;
+        }
+        if (value instanceof CharSequence) {
+            return value.toString();
+        }
+        if (value instanceof char[]) {
+            return new String((char[]) value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of bytes of the chars encoded in UTF-8.
+     *
+     * <p>
+     * An unpaired surrogate is counted as one byte, as it is replaced with '?' by {@link String#getBytes}.
+     * </p>
+     *
+     * @param value the chars to encode
+     * @return the number of bytes
+     */
+    static int utf8Length(final CharSequence value) {
+        final int length = value.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // 4 bytes for 2 chars
+                bytes += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,194 @@
+package jp.unaguna.fmtbuilder;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The providers generated from the accessors of classes.
+ *
+ * <p>
+ * The accessors of each class are discovered once and bound to {@link Function}s by {@link LambdaMetafactory},
+ * so calling them costs the same as calling hand-written lambdas.
+ * The accessors of classes which are not visible from the class loader of this library
+ * are called through {@link MethodHandle}s instead.
+ * The generated providers are cached per class.
+ * </p>
+ */
+final class ClassAccessors {
+    private static final ClassValue<Map<String, Function<Object, Object>>> CACHE
+            = new ClassValue<Map<String, Function<Object, Object>>>() {
+        @Override
+        protected Map<String, Function<Object, Object>> computeValue(final Class<?> type) {
+            return Collections.unmodifiableMap(discover(type));
+        }
+    };
+
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Function.class);
+    private static final MethodType APPLY_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private ClassAccessors() {
+    }
+
+    /**
+     * Returns the providers of the class, whose keys are the property names.
+     *
+     * @param type the class
+     * @param <T> the class
+     * @return the providers
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Map<String, Function<T, Object>> of(final Class<T> type) {
+        // Function<Object, Object> accepts T
+        return (Map<String, Function<T, Object>>) (Map<String, ?>) CACHE.get(type);
+    }
+
+    private static Map<String, Function<Object, Object>> discover(final Class<?> type) {
+        final Map<String, Function<Object, Object>> providers = new HashMap<>();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        // getters such as getName() and isActive()
+        for (final Method method : type.getMethods()) {
+            if (!isAccessor(method) || method.getDeclaringClass() == Object.class) {
+                continue;
+            }
+
+            final String name = method.getName();
+            final String propertyName;
+            if (name.startsWith("get") && name.length() > 3) {
+                propertyName = decapitalize(name.substring(3));
+            } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+                propertyName = decapitalize(name.substring(2));
+            } else {
+                continue;
+            }
+            providers.put(propertyName, bind(lookup, type, method));
+        }
+
+        // record-style accessors such as name(), which are named after the fields
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (final Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || providers.containsKey(field.getName())) {
+                    continue;
+                }
+
+                final Method method;
+                try {
+                    method = type.getMethod(field.getName());
+                } catch (NoSuchMethodException e) {
+                    continue;
+                }
+                if (isAccessor(method)) {
+                    providers.put(field.getName(), bind(lookup, type, method));
+                }
+            }
+        }
+
+        return providers;
+    }
+
+    private static boolean isAccessor(final Method method) {
+        return !Modifier.isStatic(method.getModifiers())
+                && method.getParameterCount() == 0
+                && method.getReturnType() != void.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> bind(
+            final MethodHandles.Lookup lookup, final Class<?> type, final Method method) {
+
+        final MethodHandle handle;
+        try {
+            handle = lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            return reflective(method);
+        }
+
+        if (!isVisible(type) || !isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType())) {
+            // the generated lambda links against the classes through the loader of this library,
+            // so it would fail at the first call for classes of a child class loader, such as of a web application
+            return generic(handle);
+        }
+
+        try {
+            final CallSite callSite = LambdaMetafactory.metafactory(
+                    lookup,
+                    "apply",
+                    FACTORY_TYPE,
+                    APPLY_TYPE,
+                    handle,
+                    MethodType.methodType(boxed(method.getReturnType()), type));
+            return (Function<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable e) {
+            // the accessor cannot be bound directly, for example, because the class is not accessible
+            return generic(handle);
+        }
+    }
+
+    private static Function<Object, Object> generic(final MethodHandle handle) {
+        final MethodHandle genericHandle = handle.asType(APPLY_TYPE);
+        return element -> {
+            try {
+                return genericHandle.invokeExact(element);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Returns whether the class is resolved to the same class from the class loader of this library.
+     */
+    private static boolean isVisible(final Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        if (type.isArray()) {
+            return isVisible(type.getComponentType());
+        }
+        try {
+            return Class.forName(type.getName(), false, ClassAccessors.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Function<Object, Object> reflective(final Method method) {
+        method.setAccessible(true);
+        return element -> {
+            try {
+                return method.invoke(element);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static Class<?> boxed(final Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * Converts the name in the same way as {@code java.beans.Introspector#decapitalize}.
+     */
+    private static String decapitalize(final String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(0)) && Character.isUpperCase(name.charAt(1))) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
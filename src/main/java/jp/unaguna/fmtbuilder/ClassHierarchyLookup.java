@@ -0,0 +1,56 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.Map;
+
+/**
+ * The lookup of the value registered for a class or its nearest supertype.
+ *
+ * <p>
+ * The class itself and its superclasses are searched first, from the nearest.
+ * Then the interfaces of each of them are searched, breadth-first for each class.
+ * </p>
+ */
+final class ClassHierarchyLookup {
+    private ClassHierarchyLookup() {
+    }
+
+    /**
+     * Returns the value registered for the class or its nearest supertype.
+     *
+     * @param registered the values registered for classes
+     * @param cls the class to look up
+     * @param <V> the type of the values
+     * @return the value, or null if no value is registered for the class and its supertypes
+     */
+    static <V> V find(final Map<Class<?>, V> registered, final Class<?> cls) {
+        for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+            final V value = registered.get(c);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+            final V value = findInterface(registered, c.getInterfaces());
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static <V> V findInterface(final Map<Class<?>, V> registered, final Class<?>[] interfaces) {
+        for (final Class<?> i : interfaces) {
+            final V value = registered.get(i);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (final Class<?> i : interfaces) {
+            final V value = findInterface(registered, i.getInterfaces());
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,184 @@
+package jp.unaguna.fmtbuilder;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * ColumnWidthSummary is the maximum width of each column of a table, measured from a part of the data.
+ *
+ * <p>
+ * Summaries measured from different parts of the data, for example by different threads or processes,
+ * can be merged by {@link #merge(ColumnWidthSummary)} in any order and grouping,
+ * and the result is the summary of the whole data.
+ * A summary is also a FieldWidthProvider, so each part can be formatted with the merged summary
+ * and the columns are aligned across all parts.
+ * </p>
+ *
+ * <pre>{@code
+ * // on each worker
+ * final ColumnWidthSummary summary = ColumnWidthSummary.measure(dataFormat, shard.iterator(), adapter);
+ *
+ * // on the coordinator
+ * final ColumnWidthSummary global = summaries.stream()
+ *         .reduce(ColumnWidthSummary.empty(), ColumnWidthSummary::merge);
+ *
+ * // on each worker again
+ * dataFormat.format(adapter, global, stringBuilder);
+ * }</pre>
+ *
+ * <p>
+ * This object is immutable and serializable.
+ * </p>
+ */
+public final class ColumnWidthSummary implements FieldWidthProvider, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final ColumnWidthSummary EMPTY = new ColumnWidthSummary(new HashMap<>());
+
+    private final HashMap<String, Integer> widths;
+
+    private ColumnWidthSummary(final HashMap<String, Integer> widths) {
+        this.widths = widths;
+    }
+
+    /**
+     * Returns the summary which has no column.
+     *
+     * <p>
+     * It is the identity of {@link #merge(ColumnWidthSummary)}.
+     * </p>
+     *
+     * @return the empty summary
+     */
+    public static ColumnWidthSummary empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates the summary of the specified widths.
+     *
+     * @param widths the width of each column
+     * @return the summary
+     */
+    public static ColumnWidthSummary of(final Map<String, Integer> widths) {
+        final HashMap<String, Integer> copied = new HashMap<>();
+        for (final Map.Entry<String, Integer> entry : widths.entrySet()) {
+            copied.put(Objects.requireNonNull(entry.getKey()), requireValidWidth(entry.getValue()));
+        }
+        return new ColumnWidthSummary(copied);
+    }
+
+    /**
+     * Measures the widths of the variables of the format with all the data.
+     *
+     * @param dataFormat the format whose variables are measured
+     * @param dataIterator the data to measure
+     * @param adapter the adapter to retrieve the values from the data
+     * @param <T> Data equivalent to one line
+     * @return the summary of the data
+     */
+    public static <T> ColumnWidthSummary measure(
+            final DataFormat dataFormat,
+            final Iterator<? extends T> dataIterator,
+            final ValueProviderAdapter<T> adapter) {
+
+        final TableFieldHolder widthProvider = new TableFieldHolder();
+        synchronized (adapter) {
+            while (dataIterator.hasNext()) {
+                adapter.setElement(dataIterator.next());
+                widthProvider.updateWidth(dataFormat, adapter);
+            }
+        }
+        return widthProvider.toSummary();
+    }
+
+    static ColumnWidthSummary wrap(final HashMap<String, Integer> widths) {
+        return new ColumnWidthSummary(widths);
+    }
+
+    /**
+     * Returns the summary whose width of each column is the larger one of this and the other.
+     *
+     * <p>
+     * This operation is associative and commutative.
+     * </p>
+     *
+     * @param other the summary to merge
+     * @return the merged summary
+     */
+    public ColumnWidthSummary merge(final ColumnWidthSummary other) {
+        if (other.widths.isEmpty()) {
+            return this;
+        }
+        if (this.widths.isEmpty()) {
+            return other;
+        }
+
+        final HashMap<String, Integer> merged = new HashMap<>(this.widths);
+        for (final Map.Entry<String, Integer> entry : other.widths.entrySet()) {
+            merged.merge(entry.getKey(), entry.getValue(), Math::max);
+        }
+        return new ColumnWidthSummary(merged);
+    }
+
+    @Override
+    public Integer getWidth(final String fieldName) {
+        return widths.get(fieldName);
+    }
+
+    /**
+     * Returns the width of each column.
+     *
+     * @return the unmodifiable map of the widths
+     */
+    public Map<String, Integer> getWidths() {
+        return Collections.unmodifiableMap(widths);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ColumnWidthSummary)) {
+            return false;
+        }
+        return widths.equals(((ColumnWidthSummary) o).widths);
+    }
+
+    @Override
+    public int hashCode() {
+        return widths.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnWidthSummary" + widths;
+    }
+
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (widths == null) {
+            throw new InvalidObjectException("widths is null");
+        }
+        for (final Map.Entry<String, Integer> entry : widths.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null || entry.getValue() < 0) {
+                throw new InvalidObjectException("invalid width: " + entry);
+            }
+        }
+    }
+
+    private static Integer requireValidWidth(final Integer width) {
+        if (width == null || width < 0) {
+            throw new IllegalArgumentException("width must not be negative: " + width);
+        }
+        return width;
+    }
+}
@@ -1,13 +1,25 @@
 package jp.unaguna.fmtbuilder;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UnknownFormatConversionException;
 
 /**
  * DataFormat is a formatter for data consisting of field values.
  * DataFormat.Builder can be used to build formatting rules to create a DataFormat for each project-specific data.
+ *
+ * <p>
+ * Values are converted to text by {@link Object#toString()}, except that the values which are CharSequences,
+ * such as StringBuilders and CharBuffers, and char arrays are measured and appended as they are
+ * without creating Strings. A slice of a larger buffer can be passed as {@code CharBuffer.wrap(array, offset, length)}.
+ * The contents of such values must not be changed until they are formatted.
+ * </p>
  */
 public interface DataFormat {
     int CODE_POINT_PERCENT = '%';
@@ -57,6 +69,144 @@ public interface DataFormat {
             final FieldWidthProvider fieldWidthProvider,
             final StringBuilder toAppendTo);
 
+    /**
+     * Formats data whose values are extracted by the extractor.
+     *
+     * @param element the data to format
+     * @param extractor the extractor of the values of the data
+     * @param <T> type of the data
+     * @return the formatted String
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    default <T> String format(final T element, final ValueExtractor<? super T> extractor) {
+        return format(extractor.bind(element));
+    }
+
+    /**
+     * Formats data whose values are extracted by the extractor
+     * and appends the resulting text to the string builder.
+     *
+     * @param element the data to format
+     * @param extractor the extractor of the values of the data
+     * @param toAppendTo the string buffer to which the formatted text is to be appended
+     * @param <T> type of the data
+     * @return the value passed in as toAppendTo
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    default <T> StringBuilder format(
+            final T element,
+            final ValueExtractor<? super T> extractor,
+            final StringBuilder toAppendTo) {
+        return format(extractor.bind(element), toAppendTo);
+    }
+
+    /**
+     * Formats data whose values are extracted by the extractor
+     * and appends the resulting text to the string builder.
+     *
+     * @param element the data to format
+     * @param extractor the extractor of the values of the data
+     * @param fieldWidthProvider the provider of minimum width of each variable.
+     *                           This minimum width is used only for variables whose padding mode is specified.
+     * @param toAppendTo the string buffer to which the formatted text is to be appended
+     * @param <T> type of the data
+     * @return the value passed in as toAppendTo
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    default <T> StringBuilder format(
+            final T element,
+            final ValueExtractor<? super T> extractor,
+            final FieldWidthProvider fieldWidthProvider,
+            final StringBuilder toAppendTo) {
+        return format(extractor.bind(element), fieldWidthProvider, toAppendTo);
+    }
+
+    /**
+     * Returns the number of chars of the text which
+     * {@link #format(ValueProvider, FieldWidthProvider, StringBuilder)} would produce.
+     *
+     * <p>
+     * The formats built by {@link Builder} compute it without building the text;
+     * the lengths of constants are computed in advance, and padding is computed from the widths.
+     * Only the values rendered by renderers or escaped are built to measure them.
+     * </p>
+     *
+     * @param valueProvider the data to format
+     * @param fieldWidthProvider the provider of minimum width of each variable.
+     *                           This minimum width is used only for variables whose padding mode is specified.
+     * @return the number of chars
+     * @throws DataFormattingException if some error occurred during measuring
+     */
+    default int measure(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+        return format(valueProvider, fieldWidthProvider).length();
+    }
+
+    /**
+     * Returns the number of bytes of the text which
+     * {@link #format(ValueProvider, FieldWidthProvider, StringBuilder)} would produce, encoded in UTF-8.
+     *
+     * @param valueProvider the data to format
+     * @param fieldWidthProvider the provider of minimum width of each variable.
+     *                           This minimum width is used only for variables whose padding mode is specified.
+     * @return the number of bytes
+     * @throws DataFormattingException if some error occurred during measuring
+     */
+    default int measureUtf8(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+        return CharSequences.utf8Length(format(valueProvider, fieldWidthProvider));
+    }
+
+    /**
+     * Returns the format whose variables are bound to the values of the partial provider.
+     *
+     * <p>
+     * It is useful for variables whose values are fixed for a long time, such as a host name.
+     * Only the variables for which the partial provider has values are bound,
+     * and the values are retrieved when this method is called.
+     * The formats built by {@link Builder} render the bound values into constants,
+     * so that formatting with the returned format retrieves only the remaining variables.
+     * Bound variables with padding remain as variables of the returned format
+     * so that they are aligned in tables, but their values are not retrieved any more.
+     * The other implementations keep all the bound variables, since their padding is not known.
+     * </p>
+     *
+     * @param partial the provider of the values to bind
+     * @return the format whose variables are bound
+     * @throws DataFormattingException if some error occurred during rendering the bound values
+     */
+    default DataFormat bind(final ValueProvider partial) {
+        return new BoundDataFormat(this, partial);
+    }
+
+    /**
+     * Returns the text which is formatted from the data when it is used for the first time.
+     *
+     * <p>
+     * Creating the returned object costs only an allocation, so it is suitable for logging
+     * which may be discarded by the log level or sampling.
+     * The data must not be changed until the text is used.
+     * </p>
+     *
+     * @param valueProvider the data to format
+     * @return the deferred text
+     * @see DeferredFormat
+     */
+    default DeferredFormat defer(final ValueProvider valueProvider) {
+        return new DeferredFormat(this, valueProvider, FieldWidthProvider.empty);
+    }
+
+    /**
+     * Returns the text which is formatted from the data when it is used for the first time.
+     *
+     * @param valueProvider the data to format
+     * @param fieldWidthProvider the provider of minimum width of each variable.
+     *                           This minimum width is used only for variables whose padding mode is specified.
+     * @return the deferred text
+     * @see DeferredFormat
+     */
+    default DeferredFormat defer(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+        return new DeferredFormat(this, valueProvider, fieldWidthProvider);
+    }
+
     /**
      * Returns the variable names used in the format
      *
@@ -132,8 +282,19 @@ public interface DataFormat {
 
     class Builder {
         private List<DataFormatPart> formatParts = new ArrayList<>();
+        private ValueEscaping escaping = ValueEscaping.NONE;
+        private final Map<String, ValueEscaping> variableEscapings = new HashMap<>();
+        private MissingValuePolicy missingValuePolicy = MissingValuePolicy.FAIL;
+        private final Map<String, MissingValuePolicy> variableMissingValuePolicies = new HashMap<>();
+        private ValueRendererRegistry renderers = null;
+        private final Map<String, ValueRendererRegistry> variableRenderers = new HashMap<>();
+        private DisplayWidth displayWidth = DisplayWidth.LENGTH;
+        private final Map<String, DisplayWidth> variableDisplayWidths = new HashMap<>();
+        // the parts inlined from other formats, whose options are already resolved
+        private final Set<DataFormatPart> inlinedParts = Collections.newSetFromMap(new IdentityHashMap<>());
 
         public DataFormat build() {
+            resolveVariableOptions();
             compressConstants();
             return new SimpleDataFormat(formatParts);
         }
@@ -152,6 +313,171 @@ public interface DataFormat {
             return this;
         }
 
+        /**
+         * Embeds the format.
+         *
+         * <p>
+         * The parts of a format built by {@link Builder} are inlined into this format,
+         * and adjacent constants are merged at {@link #build()},
+         * so the composed format runs as fast as a flat one.
+         * The inlined variables keep the options, such as escaping, specified when the embedded format was built;
+         * the options specified on this builder are not applied to them.
+         * Other implementations of DataFormat are embedded as they are,
+         * and their variables are not aligned by table iterators.
+         * </p>
+         *
+         * @param dataFormat the format to embed
+         * @return this builder
+         */
+        public Builder format(final DataFormat dataFormat) {
+            Objects.requireNonNull(dataFormat);
+            if (dataFormat instanceof SimpleDataFormat) {
+                for (final DataFormatPart part : ((SimpleDataFormat) dataFormat).getFormatParts()) {
+                    formatParts.add(part);
+                    inlinedParts.add(part);
+                }
+            } else {
+                formatParts.add(new DataFormatPartFormat(dataFormat));
+            }
+            return this;
+        }
+
+        /**
+         * Specifies the escaping mode of all variables in the format.
+         *
+         * <p>
+         * The mode specified for each variable by {@link #escaping(String, ValueEscaping)} takes precedence.
+         * </p>
+         *
+         * @param escaping the escaping mode
+         * @return this builder
+         */
+        public Builder escaping(final ValueEscaping escaping) {
+            this.escaping = Objects.requireNonNull(escaping);
+            return this;
+        }
+
+        /**
+         * Specifies the escaping mode of the variable.
+         *
+         * @param key the variable name
+         * @param escaping the escaping mode
+         * @return this builder
+         */
+        public Builder escaping(final String key, final ValueEscaping escaping) {
+            this.variableEscapings.put(Objects.requireNonNull(key), Objects.requireNonNull(escaping));
+            return this;
+        }
+
+        /**
+         * Specifies the policy of all variables in the format when their values are missing.
+         *
+         * <p>
+         * The policy specified for each variable by {@link #missingValue(String, MissingValuePolicy)}
+         * takes precedence.
+         * </p>
+         *
+         * @param missingValuePolicy the policy
+         * @return this builder
+         */
+        public Builder missingValue(final MissingValuePolicy missingValuePolicy) {
+            this.missingValuePolicy = Objects.requireNonNull(missingValuePolicy);
+            return this;
+        }
+
+        /**
+         * Specifies the policy of the variable when its value is missing.
+         *
+         * @param key the variable name
+         * @param missingValuePolicy the policy
+         * @return this builder
+         */
+        public Builder missingValue(final String key, final MissingValuePolicy missingValuePolicy) {
+            this.variableMissingValuePolicies.put(
+                    Objects.requireNonNull(key), Objects.requireNonNull(missingValuePolicy));
+            return this;
+        }
+
+        /**
+         * Specifies the renderers of values of all variables in the format.
+         *
+         * <p>
+         * Values whose types have no renderer in the registry are rendered by {@link Object#toString()}.
+         * The renderers specified for each variable by {@link #renderers(String, ValueRendererRegistry)}
+         * take precedence.
+         * </p>
+         *
+         * @param renderers the registry of renderers
+         * @return this builder
+         */
+        public Builder renderers(final ValueRendererRegistry renderers) {
+            this.renderers = Objects.requireNonNull(renderers);
+            return this;
+        }
+
+        /**
+         * Specifies the renderers of values of the variable.
+         *
+         * @param key the variable name
+         * @param renderers the registry of renderers
+         * @return this builder
+         */
+        public Builder renderers(final String key, final ValueRendererRegistry renderers) {
+            this.variableRenderers.put(Objects.requireNonNull(key), Objects.requireNonNull(renderers));
+            return this;
+        }
+
+        /**
+         * Specifies how to measure the width of values of all variables in the format for padding.
+         *
+         * <p>
+         * The width measured by this is also used by table iterators such as {@link TableDataFormatIterator}
+         * to align the columns. Use {@link DisplayWidth#EAST_ASIAN} to align values containing
+         * CJK characters or emoji on terminals.
+         * The way specified for each variable by {@link #displayWidth(String, DisplayWidth)} takes precedence.
+         * </p>
+         *
+         * @param displayWidth the way to measure the width
+         * @return this builder
+         */
+        public Builder displayWidth(final DisplayWidth displayWidth) {
+            this.displayWidth = Objects.requireNonNull(displayWidth);
+            return this;
+        }
+
+        /**
+         * Specifies how to measure the width of values of the variable for padding.
+         *
+         * @param key the variable name
+         * @param displayWidth the way to measure the width
+         * @return this builder
+         */
+        public Builder displayWidth(final String key, final DisplayWidth displayWidth) {
+            this.variableDisplayWidths.put(Objects.requireNonNull(key), Objects.requireNonNull(displayWidth));
+            return this;
+        }
+
+        /**
+         * Apply the options specified for the format or for each variable to the variable parts.
+         */
+        private void resolveVariableOptions() {
+            final List<DataFormatPart> newParts = new ArrayList<>();
+            for (final DataFormatPart part : this.formatParts) {
+                if (part instanceof DataFormatPartString && !inlinedParts.contains(part)) {
+                    final String key = part.variableName();
+                    newParts.add(((DataFormatPartString) part).withOptions(
+                            variableEscapings.getOrDefault(key, escaping),
+                            variableMissingValuePolicies.getOrDefault(key, missingValuePolicy),
+                            variableRenderers.getOrDefault(key, renderers),
+                            variableDisplayWidths.getOrDefault(key, displayWidth)));
+                } else {
+                    newParts.add(part);
+                }
+            }
+
+            this.formatParts = newParts;
+        }
+
         /**
          * Compress consecutive {@link this.constant(String)}s into one.
          */
@@ -0,0 +1,430 @@
+package jp.unaguna.fmtbuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A catalog of compiled DataFormats stored in a compact binary form.
+ *
+ * <p>
+ * A catalog is produced by {@link Builder} typically at build time,
+ * and loaded by {@link #load(Path)} at runtime without parsing the format strings.
+ * Each DataFormat in the catalog is materialized only when it is first obtained by {@link #get(String)}.
+ * The strings and the parts of the formats are shared among all formats in the catalog.
+ * </p>
+ *
+ * <pre>{@code
+ * // at build time
+ * new DataFormatCatalog.Builder()
+ *         .addPrintfFormat("access", "%h %u %r", paddingSpecs)
+ *         .write(outputStream);
+ *
+ * // at runtime
+ * final DataFormatCatalog catalog = DataFormatCatalog.load(path);
+ * final DataFormat accessFormat = catalog.get("access");
+ * }</pre>
+ *
+ * <p>
+ * Only DataFormats built by {@link DataFormat.Builder} or {@link DataFormat#fromPrintfFormat(String)}
+ * can be stored in a catalog.
+ * </p>
+ */
+public class DataFormatCatalog {
+    /*
+     * Binary layout (big endian):
+     *
+     *   int    MAGIC
+     *   int    VERSION
+     *   int    stringCount
+     *   int[]  offset of each string
+     *   int    partCount
+     *   part[] PART_RECORD_SIZE bytes each:
+     *          byte type, byte padding, byte escaping, byte missingValueType,
+     *          int stringIndex, int defaultValueStringIndex, byte displayWidth, byte[3] reserved
+     *   int    formatCount
+     *   format[] FORMAT_RECORD_SIZE bytes each: int nameStringIndex, int offset of the part list
+     *   part lists: int partCount, int[] partIndex
+     *   strings: int byteLength, UTF-8 bytes
+     */
+    private static final int MAGIC = 0x44464331; // "DFC1"
+    private static final int VERSION = 3;
+    private static final int PART_RECORD_SIZE = 16;
+    private static final int FORMAT_RECORD_SIZE = 8;
+    private static final byte PART_TYPE_CONSTANT = 0;
+    private static final byte PART_TYPE_STRING = 1;
+    private static final byte MISSING_VALUE_FAIL = 0;
+    private static final byte MISSING_VALUE_DEFAULT = 1;
+
+    private final ByteBuffer buffer;
+    private final int stringTableOffset;
+    private final int partTableOffset;
+    private final int formatTableOffset;
+    private final Map<String, Integer> formatIndices;
+    private final AtomicReferenceArray<String> strings;
+    private final AtomicReferenceArray<DataFormatPart> parts;
+    private final AtomicReferenceArray<DataFormat> formats;
+
+    private DataFormatCatalog(final ByteBuffer buffer) {
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("the data is not a DataFormatCatalog");
+        }
+        final int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported catalog version: " + version);
+        }
+
+        final int stringCount = buffer.getInt(8);
+        this.stringTableOffset = 12;
+        final int partCountOffset = stringTableOffset + 4 * stringCount;
+        final int partCount = buffer.getInt(partCountOffset);
+        this.partTableOffset = partCountOffset + 4;
+        final int formatCountOffset = partTableOffset + PART_RECORD_SIZE * partCount;
+        final int formatCount = buffer.getInt(formatCountOffset);
+        this.formatTableOffset = formatCountOffset + 4;
+
+        this.strings = new AtomicReferenceArray<>(stringCount);
+        this.parts = new AtomicReferenceArray<>(partCount);
+        this.formats = new AtomicReferenceArray<>(formatCount);
+
+        // only the names are read eagerly, to look up formats by name
+        final Map<String, Integer> formatIndices = new HashMap<>();
+        for (int i = 0; i < formatCount; i++) {
+            formatIndices.put(getString(buffer.getInt(formatTableOffset + FORMAT_RECORD_SIZE * i)), i);
+        }
+        this.formatIndices = Collections.unmodifiableMap(formatIndices);
+    }
+
+    /**
+     * Loads a catalog from the file.
+     *
+     * <p>
+     * The file is mapped into memory, and each format is read from it when it is first obtained.
+     * </p>
+     *
+     * @param path the catalog file
+     * @return the catalog
+     * @throws IOException if an I/O error occurs
+     * @throws IllegalArgumentException if the file is not a catalog
+     */
+    public static DataFormatCatalog load(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new DataFormatCatalog(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Loads a catalog from the bytes.
+     *
+     * @param bytes the content of a catalog
+     * @return the catalog
+     * @throws IllegalArgumentException if the bytes are not a catalog
+     */
+    public static DataFormatCatalog load(final byte[] bytes) {
+        return new DataFormatCatalog(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+    }
+
+    /**
+     * Returns the format of the specified name.
+     *
+     * @param name the name of the format
+     * @return the format, or null if the catalog contains no format of the name
+     */
+    public DataFormat get(final String name) {
+        final Integer index = formatIndices.get(name);
+        if (index == null) {
+            return null;
+        }
+
+        DataFormat format = formats.get(index);
+        if (format == null) {
+            format = readFormat(index);
+            if (!formats.compareAndSet(index, null, format)) {
+                format = formats.get(index);
+            }
+        }
+        return format;
+    }
+
+    public boolean contains(final String name) {
+        return formatIndices.containsKey(name);
+    }
+
+    public Set<String> getNames() {
+        return formatIndices.keySet();
+    }
+
+    private DataFormat readFormat(final int formatIndex) {
+        final int partListOffset = buffer.getInt(formatTableOffset + FORMAT_RECORD_SIZE * formatIndex + 4);
+        final int partCount = buffer.getInt(partListOffset);
+        final List<DataFormatPart> formatParts = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            formatParts.add(getPart(buffer.getInt(partListOffset + 4 + 4 * i)));
+        }
+        return new SimpleDataFormat(formatParts);
+    }
+
+    private DataFormatPart getPart(final int partIndex) {
+        DataFormatPart part = parts.get(partIndex);
+        if (part == null) {
+            part = readPart(partIndex);
+            if (!parts.compareAndSet(partIndex, null, part)) {
+                part = parts.get(partIndex);
+            }
+        }
+        return part;
+    }
+
+    private DataFormatPart readPart(final int partIndex) {
+        final int offset = partTableOffset + PART_RECORD_SIZE * partIndex;
+        final byte type = buffer.get(offset);
+        final String value = getString(buffer.getInt(offset + 4));
+        switch (type) {
+            case PART_TYPE_CONSTANT:
+                return new DataFormatPartConstant(value);
+            case PART_TYPE_STRING:
+                return new DataFormatPartString(
+                        value,
+                        ValuePadding.values()[buffer.get(offset + 1)],
+                        ValueEscaping.values()[buffer.get(offset + 2)],
+                        readMissingValuePolicy(offset),
+                        null,
+                        DisplayWidth.values()[buffer.get(offset + 12)]);
+            default:
+                throw new IllegalStateException("unknown part type: " + type);
+        }
+    }
+
+    private MissingValuePolicy readMissingValuePolicy(final int partOffset) {
+        if (buffer.get(partOffset + 3) == MISSING_VALUE_FAIL) {
+            return MissingValuePolicy.FAIL;
+        }
+
+        final String defaultValue = getString(buffer.getInt(partOffset + 8));
+        return defaultValue.isEmpty() ? MissingValuePolicy.EMPTY : MissingValuePolicy.defaultValue(defaultValue);
+    }
+
+    private String getString(final int stringIndex) {
+        String string = strings.get(stringIndex);
+        if (string == null) {
+            final int offset = buffer.getInt(stringTableOffset + 4 * stringIndex);
+            final byte[] bytes = new byte[buffer.getInt(offset)];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(offset + 4);
+            view.get(bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            if (!strings.compareAndSet(stringIndex, null, string)) {
+                string = strings.get(stringIndex);
+            }
+        }
+        return string;
+    }
+
+    /**
+     * The builder of a catalog.
+     */
+    public static class Builder {
+        private final Map<String, DataFormat> formats = new LinkedHashMap<>();
+
+        /**
+         * Adds a format.
+         *
+         * @param name the name of the format
+         * @param format the format built by {@link DataFormat.Builder}
+         * @return this builder
+         * @throws IllegalArgumentException if a format of the same name is already added,
+         *                                  or the format cannot be stored in a catalog
+         */
+        public Builder add(final String name, final DataFormat format) {
+            Objects.requireNonNull(name);
+            Objects.requireNonNull(format);
+
+            if (formats.containsKey(name)) {
+                throw new IllegalArgumentException("A format named '" + name + "' is already added.");
+            }
+            if (!(format instanceof SimpleDataFormat)) {
+                throw new IllegalArgumentException("the format cannot be stored in a catalog: " + format);
+            }
+            for (final DataFormatPart part : ((SimpleDataFormat) format).getFormatParts()) {
+                if (!isStorable(part)) {
+                    throw new IllegalArgumentException("the format cannot be stored in a catalog: " + format);
+                }
+            }
+
+            formats.put(name, format);
+            return this;
+        }
+
+        public Builder addPrintfFormat(final String name, final String fmt) {
+            return add(name, DataFormat.fromPrintfFormat(fmt));
+        }
+
+        public Builder addPrintfFormat(
+                final String name, final String fmt, final VariablePaddingSpecifications paddingSpecs) {
+            return add(name, DataFormat.fromPrintfFormat(fmt, paddingSpecs));
+        }
+
+        /**
+         * Writes the catalog.
+         *
+         * @param out the stream to which the catalog is written; it is not closed by this method
+         * @throws IOException if an I/O error occurs
+         */
+        public void write(final OutputStream out) throws IOException {
+            final Map<String, Integer> stringIndices = new LinkedHashMap<>();
+            final Map<List<Object>, Integer> partIndices = new LinkedHashMap<>();
+            final List<int[]> formatPartLists = new ArrayList<>();
+            final List<Integer> formatNameIndices = new ArrayList<>();
+
+            for (final Map.Entry<String, DataFormat> entry : formats.entrySet()) {
+                formatNameIndices.add(stringIndex(stringIndices, entry.getKey()));
+
+                final List<DataFormatPart> formatParts = ((SimpleDataFormat) entry.getValue()).getFormatParts();
+                final int[] partList = new int[formatParts.size()];
+                for (int i = 0; i < partList.length; i++) {
+                    final List<Object> partKey = partKey(stringIndices, formatParts.get(i));
+                    Integer partIndex = partIndices.get(partKey);
+                    if (partIndex == null) {
+                        partIndex = partIndices.size();
+                        partIndices.put(partKey, partIndex);
+                    }
+                    partList[i] = partIndex;
+                }
+                formatPartLists.add(partList);
+            }
+
+            final List<byte[]> encodedStrings = new ArrayList<>(stringIndices.size());
+            for (final String string : stringIndices.keySet()) {
+                encodedStrings.add(string.getBytes(StandardCharsets.UTF_8));
+            }
+
+            // compute the offsets of the variable-length sections
+            final int headerSize = 12 + 4 * stringIndices.size()
+                    + 4 + PART_RECORD_SIZE * partIndices.size()
+                    + 4 + FORMAT_RECORD_SIZE * formats.size();
+            final int[] partListOffsets = new int[formatPartLists.size()];
+            int offset = headerSize;
+            for (int i = 0; i < partListOffsets.length; i++) {
+                partListOffsets[i] = offset;
+                offset += 4 + 4 * formatPartLists.get(i).length;
+            }
+            final int[] stringOffsets = new int[encodedStrings.size()];
+            for (int i = 0; i < stringOffsets.length; i++) {
+                stringOffsets[i] = offset;
+                offset += 4 + encodedStrings.get(i).length;
+            }
+
+            final DataOutputStream dataOut = new DataOutputStream(out);
+            dataOut.writeInt(MAGIC);
+            dataOut.writeInt(VERSION);
+            dataOut.writeInt(stringOffsets.length);
+            for (final int stringOffset : stringOffsets) {
+                dataOut.writeInt(stringOffset);
+            }
+            dataOut.writeInt(partIndices.size());
+            for (final List<Object> partKey : partIndices.keySet()) {
+                dataOut.writeByte((Byte) partKey.get(0));
+                dataOut.writeByte((Byte) partKey.get(1));
+                dataOut.writeByte((Byte) partKey.get(2));
+                dataOut.writeByte((Byte) partKey.get(3));
+                dataOut.writeInt((Integer) partKey.get(4));
+                dataOut.writeInt((Integer) partKey.get(5));
+                dataOut.writeByte((Byte) partKey.get(6));
+                dataOut.write(new byte[3]);
+            }
+            dataOut.writeInt(formatNameIndices.size());
+            for (int i = 0; i < formatNameIndices.size(); i++) {
+                dataOut.writeInt(formatNameIndices.get(i));
+                dataOut.writeInt(partListOffsets[i]);
+            }
+            for (final int[] partList : formatPartLists) {
+                dataOut.writeInt(partList.length);
+                for (final int partIndex : partList) {
+                    dataOut.writeInt(partIndex);
+                }
+            }
+            for (final byte[] encodedString : encodedStrings) {
+                dataOut.writeInt(encodedString.length);
+                dataOut.write(encodedString);
+            }
+            dataOut.flush();
+        }
+
+        /**
+         * Writes the catalog into a byte array.
+         *
+         * @return the content of the catalog
+         */
+        public byte[] toByteArray() {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try {
+                write(out);
+            } catch (IOException e) {
+                // never occurs with ByteArrayOutputStream
+                throw new IllegalStateException(e);
+            }
+            return out.toByteArray();
+        }
+
+        private static int stringIndex(final Map<String, Integer> stringIndices, final String string) {
+            Integer index = stringIndices.get(string);
+            if (index == null) {
+                index = stringIndices.size();
+                stringIndices.put(string, index);
+            }
+            return index;
+        }
+
+        private static boolean isStorable(final DataFormatPart part) {
+            if (part instanceof DataFormatPartConstant) {
+                return true;
+            }
+            if (part instanceof DataFormatPartString) {
+                if (((DataFormatPartString) part).getRenderers() != null) {
+                    return false;
+                }
+                final Object defaultValue = ((DataFormatPartString) part).getMissingValuePolicy().getDefaultValue();
+                return defaultValue == null || defaultValue instanceof String;
+            }
+            return false;
+        }
+
+        /**
+         * Returns the part record as a list:
+         * type, padding, escaping, missing value type, string index, default value string index and display width.
+         */
+        private static List<Object> partKey(final Map<String, Integer> stringIndices, final DataFormatPart part) {
+            if (part instanceof DataFormatPartConstant) {
+                return Arrays.asList(
+                        PART_TYPE_CONSTANT,
+                        (byte) 0,
+                        (byte) 0,
+                        MISSING_VALUE_FAIL,
+                        stringIndex(stringIndices, ((DataFormatPartConstant) part).getConstValue()),
+                        -1,
+                        (byte) 0);
+            } else {
+                final DataFormatPartString stringPart = (DataFormatPartString) part;
+                final String defaultValue = (String) stringPart.getMissingValuePolicy().getDefaultValue();
+                return Arrays.asList(
+                        PART_TYPE_STRING,
+                        (byte) stringPart.getPadding().ordinal(),
+                        (byte) stringPart.getEscaping().ordinal(),
+                        defaultValue == null ? MISSING_VALUE_FAIL : MISSING_VALUE_DEFAULT,
+                        stringIndex(stringIndices, stringPart.variableName()),
+                        defaultValue == null ? -1 : stringIndex(stringIndices, defaultValue),
+                        (byte) stringPart.getDisplayWidth().ordinal());
+            }
+        }
+    }
+}
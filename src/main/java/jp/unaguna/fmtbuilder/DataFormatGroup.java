@@ -0,0 +1,158 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.*;
+
+/**
+ * DataFormatGroup formats one data with several DataFormats.
+ *
+ * <p>
+ * Each variable used in the member formats is retrieved from the ValueProvider at most once per formatting,
+ * even if it is used in several member formats.
+ * It is useful when the cost of retrieving the values is high,
+ * for example, when the values are computed by {@link ValueProviderAdapter}.
+ * </p>
+ *
+ * <pre>{@code
+ * final DataFormatGroup group = DataFormatGroup.of(logFormat, consoleFormat, auditFormat);
+ * group.format(adapter, logLine, consoleLine, auditLine);
+ * }</pre>
+ */
+public class DataFormatGroup {
+    private final List<DataFormat> formats;
+    private final List<String> variables;
+    private final Map<String, Integer> variableIndices;
+
+    public DataFormatGroup(final List<DataFormat> formats) {
+        final List<DataFormat> formatList = new ArrayList<>();
+        final List<String> variables = new ArrayList<>();
+        final Map<String, Integer> variableIndices = new HashMap<>();
+        for (final DataFormat format : formats) {
+            formatList.add(Objects.requireNonNull(format));
+            for (final String variableName : format.getVariableNames()) {
+                if (!variableIndices.containsKey(variableName)) {
+                    variableIndices.put(variableName, variables.size());
+                    variables.add(variableName);
+                }
+            }
+        }
+
+        this.formats = Collections.unmodifiableList(formatList);
+        this.variables = Collections.unmodifiableList(variables);
+        this.variableIndices = variableIndices;
+    }
+
+    public static DataFormatGroup of(final DataFormat... formats) {
+        return new DataFormatGroup(Arrays.asList(formats));
+    }
+
+    /**
+     * Formats data with each member format.
+     *
+     * @param valueProvider the data to format
+     * @return the formatted Strings, in the order of the member formats
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public List<String> format(final ValueProvider valueProvider) {
+        final StringBuilder[] sinks = new StringBuilder[formats.size()];
+        for (int i = 0; i < sinks.length; i++) {
+            sinks[i] = new StringBuilder();
+        }
+        this.format(valueProvider, FieldWidthProvider.empty, sinks);
+
+        final List<String> result = new ArrayList<>(sinks.length);
+        for (final StringBuilder sink : sinks) {
+            result.add(sink.toString());
+        }
+        return result;
+    }
+
+    /**
+     * Formats data with each member format and appends the resulting texts to the string builders.
+     *
+     * @param valueProvider the data to format
+     * @param toAppendTo the string buffers to which the formatted texts are to be appended;
+     *                   the i-th buffer receives the text of the i-th member format
+     * @throws DataFormattingException if some error occurred during formatting
+     * @throws IllegalArgumentException if the number of the buffers differs from the number of the member formats
+     */
+    public void format(final ValueProvider valueProvider, final StringBuilder... toAppendTo) {
+        this.format(valueProvider, FieldWidthProvider.empty, toAppendTo);
+    }
+
+    /**
+     * Formats data with each member format and appends the resulting texts to the string builders.
+     *
+     * @param valueProvider the data to format
+     * @param fieldWidthProvider the provider of minimum width of each variable.
+     *                           This minimum width is used only for variables whose padding mode is specified.
+     * @param toAppendTo the string buffers to which the formatted texts are to be appended;
+     *                   the i-th buffer receives the text of the i-th member format
+     * @throws DataFormattingException if some error occurred during formatting
+     * @throws IllegalArgumentException if the number of the buffers differs from the number of the member formats
+     */
+    public void format(
+            final ValueProvider valueProvider,
+            final FieldWidthProvider fieldWidthProvider,
+            final StringBuilder... toAppendTo) {
+
+        if (toAppendTo.length != formats.size()) {
+            throw new IllegalArgumentException(
+                    "the number of buffers must be " + formats.size() + " but was " + toAppendTo.length);
+        }
+
+        final SharedValueProvider sharedValueProvider = new SharedValueProvider(valueProvider);
+        for (int i = 0; i < toAppendTo.length; i++) {
+            formats.get(i).format(sharedValueProvider, fieldWidthProvider, toAppendTo[i]);
+        }
+    }
+
+    public List<DataFormat> getFormats() {
+        return this.formats;
+    }
+
+    /**
+     * Returns the variable names used in any of the member formats, without duplication.
+     *
+     * @return the variable names
+     */
+    public List<String> getVariableNames() {
+        return this.variables;
+    }
+
+    /**
+     * The ValueProvider which retrieves each value from the inner provider only once.
+     */
+    private class SharedValueProvider implements ValueProvider {
+        private final ValueProvider valueProvider;
+        private final Object[] values = new Object[variables.size()];
+        private final boolean[] retrieved = new boolean[variables.size()];
+
+        SharedValueProvider(final ValueProvider valueProvider) {
+            this.valueProvider = valueProvider;
+        }
+
+        @Override
+        public Object get(final String key) {
+            final Object value = find(key);
+            if (value == MISSING) {
+                // call the inner provider again to throw its own exception
+                return valueProvider.get(key);
+            }
+            return value;
+        }
+
+        @Override
+        public Object find(final String key) {
+            final Integer index = variableIndices.get(key);
+            if (index == null) {
+                return valueProvider.find(key);
+            }
+
+            if (!retrieved[index]) {
+                values[index] = valueProvider.find(key);
+                retrieved[index] = true;
+            }
+            return values[index];
+        }
+    }
+}
@@ -3,4 +3,21 @@ package jp.unaguna.fmtbuilder;
 interface DataFormatPart {
     void format(StringBuilder stringBuilder, ValueProvider valueProvider, Integer width);
     String variableName();
+
+    /**
+     * Returns the width of the value without padding.
+     * It is used to determine the width of each variable in a table.
+     */
+    int valueWidth(ValueProvider valueProvider);
+
+    /**
+     * Returns the number of chars which {@link #format(StringBuilder, ValueProvider, Integer)} appends.
+     */
+    int measure(ValueProvider valueProvider, Integer width);
+
+    /**
+     * Returns the number of bytes of the text which {@link #format(StringBuilder, ValueProvider, Integer)} appends,
+     * encoded in UTF-8.
+     */
+    int measureUtf8(ValueProvider valueProvider, Integer width);
 }
@@ -0,0 +1,63 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.Objects;
+
+/**
+ * The padded variable part whose value is bound by {@link DataFormat#bind(ValueProvider)}.
+ *
+ * <p>
+ * The value is rendered when it is bound, and only padding is done at formatting.
+ * </p>
+ */
+class DataFormatPartBound implements DataFormatPart {
+    private final String key;
+    private final ValuePadding padding;
+    private final String text;
+    private final int textWidth;
+    private final int textUtf8Length;
+
+    DataFormatPartBound(final String key, final ValuePadding padding, final String text, final int textWidth) {
+        this.key = Objects.requireNonNull(key);
+        this.padding = Objects.requireNonNull(padding);
+        this.text = Objects.requireNonNull(text);
+        this.textWidth = textWidth;
+        this.textUtf8Length = CharSequences.utf8Length(text);
+    }
+
+    @Override
+    public void format(final StringBuilder stringBuilder, final ValueProvider valueProvider, final Integer width) {
+        if (width != null && padding == ValuePadding.LEFT) {
+            StringBuilders.appendRepeated(stringBuilder, ' ', width - textWidth);
+        }
+
+        stringBuilder.append(text);
+
+        if (width != null && padding == ValuePadding.RIGHT) {
+            StringBuilders.appendRepeated(stringBuilder, ' ', width - textWidth);
+        }
+    }
+
+    @Override
+    public int valueWidth(final ValueProvider valueProvider) {
+        return textWidth;
+    }
+
+    @Override
+    public int measure(final ValueProvider valueProvider, final Integer width) {
+        return text.length() + paddingLength(width);
+    }
+
+    @Override
+    public int measureUtf8(final ValueProvider valueProvider, final Integer width) {
+        return textUtf8Length + paddingLength(width);
+    }
+
+    private int paddingLength(final Integer width) {
+        return width != null ? Math.max(0, width - textWidth) : 0;
+    }
+
+    @Override
+    public String variableName() {
+        return key;
+    }
+}
@@ -4,9 +4,11 @@ import java.util.Objects;
 
 class DataFormatPartConstant implements DataFormatPart {
     private final String value;
+    private final int utf8Length;
 
     DataFormatPartConstant(final String value) {
         this.value = Objects.requireNonNull(value);
+        this.utf8Length = CharSequences.utf8Length(value);
     }
 
     @Override
@@ -14,6 +16,21 @@ class DataFormatPartConstant implements DataFormatPart {
         stringBuilder.append(value);
     }
 
+    @Override
+    public int valueWidth(final ValueProvider valueProvider) {
+        return value.length();
+    }
+
+    @Override
+    public int measure(final ValueProvider valueProvider, final Integer width) {
+        return value.length();
+    }
+
+    @Override
+    public int measureUtf8(final ValueProvider valueProvider, final Integer width) {
+        return utf8Length;
+    }
+
     @Override
     public String variableName() {
         return null;
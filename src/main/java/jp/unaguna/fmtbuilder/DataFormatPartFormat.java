@@ -0,0 +1,43 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.Objects;
+
+/**
+ * The part which embeds a DataFormat whose parts cannot be inlined.
+ */
+class DataFormatPartFormat implements DataFormatPart {
+    private final DataFormat dataFormat;
+
+    DataFormatPartFormat(final DataFormat dataFormat) {
+        this.dataFormat = Objects.requireNonNull(dataFormat);
+    }
+
+    @Override
+    public void format(final StringBuilder stringBuilder, final ValueProvider valueProvider, final Integer width) {
+        dataFormat.format(valueProvider, stringBuilder);
+    }
+
+    @Override
+    public int valueWidth(final ValueProvider valueProvider) {
+        return dataFormat.format(valueProvider).length();
+    }
+
+    @Override
+    public int measure(final ValueProvider valueProvider, final Integer width) {
+        return dataFormat.measure(valueProvider, FieldWidthProvider.empty);
+    }
+
+    @Override
+    public int measureUtf8(final ValueProvider valueProvider, final Integer width) {
+        return dataFormat.measureUtf8(valueProvider, FieldWidthProvider.empty);
+    }
+
+    @Override
+    public String variableName() {
+        return null;
+    }
+
+    public DataFormat getDataFormat() {
+        return this.dataFormat;
+    }
+}
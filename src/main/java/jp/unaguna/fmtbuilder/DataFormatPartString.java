@@ -6,40 +6,222 @@ import java.util.Objects;
 class DataFormatPartString implements DataFormatPart {
     private final String key;
     private final ValuePadding padding;
+    private final ValueEscaping escaping;
+    private final MissingValuePolicy missingValuePolicy;
+    private final ValueRendererRegistry renderers;
+    private final DisplayWidth displayWidth;
 
     DataFormatPartString(final String key, final ValuePadding padding) {
+        this(key, padding, ValueEscaping.NONE, MissingValuePolicy.FAIL, null, DisplayWidth.LENGTH);
+    }
+
+    DataFormatPartString(
+            final String key,
+            final ValuePadding padding,
+            final ValueEscaping escaping,
+            final MissingValuePolicy missingValuePolicy,
+            final ValueRendererRegistry renderers,
+            final DisplayWidth displayWidth) {
         this.key = Objects.requireNonNull(key);
         this.padding = padding != null ? padding : ValuePadding.NONE;
+        this.escaping = escaping != null ? escaping : ValueEscaping.NONE;
+        this.missingValuePolicy = missingValuePolicy != null ? missingValuePolicy : MissingValuePolicy.FAIL;
+        this.renderers = renderers;
+        this.displayWidth = displayWidth != null ? displayWidth : DisplayWidth.LENGTH;
     }
 
     @Override
     public void format(final StringBuilder stringBuilder, final ValueProvider valueProvider, final Integer width) {
-        final String value;
-        try {
-            value = valueProvider.get(key).toString();
-        } catch (IllegalArgumentException e) {
-            throw new MissingFormatArgumentException(key);
+        final Object value = getValue(valueProvider);
+        final ValueRenderer<Object> renderer = rendererFor(value);
+        if (renderer != null) {
+            final int start = stringBuilder.length();
+            renderer.render(value, stringBuilder);
+            escapeAndPadAppended(stringBuilder, start, width);
+            return;
         }
+        if (value instanceof char[]) {
+            // append the chars without wrapping them
+            final int start = stringBuilder.length();
+            stringBuilder.append((char[]) value);
+            escapeAndPadAppended(stringBuilder, start, width);
+            return;
+        }
+
+        final CharSequence text = CharSequences.textOf(value);
+        if (padding == ValuePadding.NONE || width == null) {
+            escaping.append(stringBuilder, text);
+            return;
+        }
+
+        final int valueWidth = measure(text);
 
         // padding left
         if (padding == ValuePadding.LEFT) {
-            for(int i = value.length(); i< width; i++) {
-                stringBuilder.append(" ");
-            }
+            StringBuilders.appendRepeated(stringBuilder, ' ', width - valueWidth);
         }
 
-        stringBuilder.append(value);
+        escaping.append(stringBuilder, text);
 
         // padding right
         if (padding == ValuePadding.RIGHT) {
-            for(int i = value.length(); i< width; i++) {
-                stringBuilder.append(" ");
-            }
+            StringBuilders.appendRepeated(stringBuilder, ' ', width - valueWidth);
+        }
+    }
+
+    /**
+     * Escapes and pads the text which is already appended directly to the string builder,
+     * such as the text rendered by a renderer.
+     */
+    private void escapeAndPadAppended(final StringBuilder stringBuilder, final int start, final Integer width) {
+        escaping.escapeInPlace(stringBuilder, start);
+
+        if (padding == ValuePadding.NONE || width == null) {
+            return;
+        }
+
+        final int valueWidth = displayWidth.width(stringBuilder, start, stringBuilder.length());
+        if (padding == ValuePadding.LEFT) {
+            StringBuilders.insertRepeated(stringBuilder, start, ' ', width - valueWidth);
+        } else if (padding == ValuePadding.RIGHT) {
+            StringBuilders.appendRepeated(stringBuilder, ' ', width - valueWidth);
         }
     }
 
+    @Override
+    public int valueWidth(final ValueProvider valueProvider) {
+        final Object value = getValue(valueProvider);
+        final ValueRenderer<Object> renderer = rendererFor(value);
+        if (renderer != null) {
+            final StringBuilder rendered = new StringBuilder();
+            renderer.render(value, rendered);
+            return measure(rendered);
+        }
+        if (value instanceof char[] && escaping == ValueEscaping.NONE && displayWidth == DisplayWidth.LENGTH) {
+            return ((char[]) value).length;
+        }
+        return measure(CharSequences.textOf(value));
+    }
+
+    @Override
+    public int measure(final ValueProvider valueProvider, final Integer width) {
+        final Object value = getValue(valueProvider);
+        final ValueRenderer<Object> renderer = rendererFor(value);
+        if (renderer == null && displayWidth == DisplayWidth.LENGTH) {
+            // the length is computed without building the escaped text
+            final int length = value instanceof char[] && escaping == ValueEscaping.NONE
+                    ? ((char[]) value).length
+                    : escaping.escapedLength(CharSequences.textOf(value));
+            return length + paddingLength(width, length);
+        }
+
+        final CharSequence text = escapedText(value, renderer);
+        return text.length() + paddingLength(width, displayWidth.width(text));
+    }
+
+    @Override
+    public int measureUtf8(final ValueProvider valueProvider, final Integer width) {
+        final Object value = getValue(valueProvider);
+        final CharSequence text = escapedText(value, rendererFor(value));
+        return CharSequences.utf8Length(text) + paddingLength(width, displayWidth.width(text));
+    }
+
+    /**
+     * Returns the text which this part appends, without padding.
+     */
+    private CharSequence escapedText(final Object value, final ValueRenderer<Object> renderer) {
+        if (renderer != null) {
+            final StringBuilder rendered = new StringBuilder();
+            renderer.render(value, rendered);
+            escaping.escapeInPlace(rendered, 0);
+            return rendered;
+        }
+
+        final CharSequence text = CharSequences.textOf(value);
+        if (escaping.indexOfEscaped(text, 0) < 0) {
+            return text;
+        }
+        final StringBuilder escaped = new StringBuilder();
+        escaping.append(escaped, text);
+        return escaped;
+    }
+
+    private int paddingLength(final Integer width, final int valueWidth) {
+        if (padding == ValuePadding.NONE || width == null) {
+            return 0;
+        }
+        return Math.max(0, width - valueWidth);
+    }
+
+    /**
+     * Returns the width of the escaped text.
+     */
+    private int measure(final CharSequence text) {
+        if (displayWidth == DisplayWidth.LENGTH) {
+            return escaping.escapedLength(text);
+        }
+        if (escaping.indexOfEscaped(text, 0) < 0) {
+            return displayWidth.width(text);
+        }
+
+        final StringBuilder escaped = new StringBuilder();
+        escaping.append(escaped, text);
+        return displayWidth.width(escaped);
+    }
+
+    private Object getValue(final ValueProvider valueProvider) {
+        final Object value;
+        try {
+            value = valueProvider.find(key);
+        } catch (IllegalArgumentException e) {
+            // get() reports absence by the exception, but it is an error regardless of the missing value policy
+            final MissingFormatArgumentException missing = new MissingFormatArgumentException(key);
+            missing.initCause(e);
+            throw missing;
+        }
+        if (value == ValueProvider.MISSING) {
+            return missingValuePolicy.resolve(key);
+        }
+        return value;
+    }
+
+    private ValueRenderer<Object> rendererFor(final Object value) {
+        return renderers != null ? renderers.rendererFor(value.getClass()) : null;
+    }
+
     @Override
     public String variableName() {
         return key;
     }
+
+    public ValuePadding getPadding() {
+        return this.padding;
+    }
+
+    public ValueEscaping getEscaping() {
+        return this.escaping;
+    }
+
+    public MissingValuePolicy getMissingValuePolicy() {
+        return this.missingValuePolicy;
+    }
+
+    public ValueRendererRegistry getRenderers() {
+        return this.renderers;
+    }
+
+    public DisplayWidth getDisplayWidth() {
+        return this.displayWidth;
+    }
+
+    /**
+     * Returns a copy of this part with the specified options.
+     */
+    DataFormatPartString withOptions(
+            final ValueEscaping escaping,
+            final MissingValuePolicy missingValuePolicy,
+            final ValueRendererRegistry renderers,
+            final DisplayWidth displayWidth) {
+        return new DataFormatPartString(key, padding, escaping, missingValuePolicy, renderers, displayWidth);
+    }
 }
@@ -0,0 +1,260 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * DataFormatRouter formats data of various types, each with the format and the extractor routed for its type.
+ *
+ * <p>
+ * A route is chosen by the class of the data, or by the discriminator value of the data if a discriminator is set.
+ * The route of a class is resolved once per concrete class and cached;
+ * if no route is added for the class itself, the route of the nearest superclass is used,
+ * and then the route of its interfaces.
+ * Since the routes use stateless {@link ValueExtractor}s, a router can be shared by threads without any lock.
+ * </p>
+ *
+ * <pre>{@code
+ * final DataFormatRouter<Event> router = new DataFormatRouter.Builder<Event>()
+ *         .route(LoginEvent.class, loginFormat, loginExtractor)
+ *         .route(ErrorEvent.class, errorFormat)
+ *         .build();
+ * router.formatAll(events, System.out::println);
+ * }</pre>
+ *
+ * @param <T> the common type of data
+ */
+public class DataFormatRouter<T> {
+    private static final Object NOT_FOUND = new Object();
+
+    private final Map<Class<?>, Route> classRoutes;
+    private final Function<? super T, ?> discriminator;
+    private final Map<Object, Route> discriminatorRoutes;
+    private final Route fallback;
+    // Class -> Route or NOT_FOUND
+    private final ConcurrentHashMap<Class<?>, Object> resolvedRoutes = new ConcurrentHashMap<>();
+
+    private DataFormatRouter(final Builder<T> builder) {
+        this.classRoutes = new HashMap<>(builder.classRoutes);
+        this.discriminator = builder.discriminator;
+        this.discriminatorRoutes = new HashMap<>(builder.discriminatorRoutes);
+        this.fallback = builder.fallback;
+    }
+
+    /**
+     * Formats data with the format routed for it.
+     *
+     * @param element the data to format
+     * @return the formatted String
+     * @throws IllegalArgumentException if no route is found for the data
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public String format(final T element) {
+        return format(element, new StringBuilder()).toString();
+    }
+
+    /**
+     * Formats data with the format routed for it and appends the resulting text to the string builder.
+     *
+     * @param element the data to format
+     * @param toAppendTo the string buffer to which the formatted text is to be appended
+     * @return the value passed in as toAppendTo
+     * @throws IllegalArgumentException if no route is found for the data
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public StringBuilder format(final T element, final StringBuilder toAppendTo) {
+        final Route route = routeFor(element);
+        return route.dataFormat.format(element, route.extractor, toAppendTo);
+    }
+
+    /**
+     * Formats each data with the format routed for it and passes the formatted Strings to the consumer in order.
+     *
+     * @param elements the data to format
+     * @param consumer the consumer which receives the formatted Strings
+     * @throws IllegalArgumentException if no route is found for some data
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public void formatAll(final Iterable<? extends T> elements, final Consumer<? super String> consumer) {
+        final StringBuilder builder = new StringBuilder();
+        for (final T element : elements) {
+            builder.setLength(0);
+            format(element, builder);
+            consumer.accept(builder.toString());
+        }
+    }
+
+    /**
+     * Formats each data with the format routed for it.
+     *
+     * @param elements the data to format
+     * @return the formatted Strings, in the order of the data
+     * @throws IllegalArgumentException if no route is found for some data
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public List<String> formatAll(final Iterable<? extends T> elements) {
+        final List<String> result = new ArrayList<>();
+        formatAll(elements, result::add);
+        return result;
+    }
+
+    /**
+     * Returns the format routed for the data.
+     *
+     * @param element the data
+     * @return the format, or null if no route is found for the data
+     */
+    public DataFormat dataFormatFor(final T element) {
+        final Route route = findRoute(element);
+        return route != null ? route.dataFormat : null;
+    }
+
+    private Route routeFor(final T element) {
+        final Route route = findRoute(element);
+        if (route == null) {
+            throw new IllegalArgumentException("no route for the data: " + element);
+        }
+        return route;
+    }
+
+    private Route findRoute(final T element) {
+        Objects.requireNonNull(element);
+        if (discriminator != null) {
+            final Route route = discriminatorRoutes.get(discriminator.apply(element));
+            if (route != null) {
+                return route;
+            }
+        }
+
+        final Class<?> cls = element.getClass();
+        Object route = resolvedRoutes.get(cls);
+        if (route == null) {
+            route = resolvedRoutes.computeIfAbsent(cls, this::resolve);
+        }
+        return route != NOT_FOUND ? (Route) route : fallback;
+    }
+
+    private Object resolve(final Class<?> cls) {
+        final Route route = ClassHierarchyLookup.find(classRoutes, cls);
+        return route != null ? route : NOT_FOUND;
+    }
+
+    private static class Route {
+        private final DataFormat dataFormat;
+        private final ValueExtractor<Object> extractor;
+
+        @SuppressWarnings("unchecked")
+        Route(final DataFormat dataFormat, final ValueExtractor<?> extractor) {
+            this.dataFormat = Objects.requireNonNull(dataFormat);
+            // the router passes only the data of the routed type to the extractor
+            this.extractor = (ValueExtractor<Object>) Objects.requireNonNull(extractor);
+        }
+    }
+
+    public static class Builder<T> {
+        private final Map<Class<?>, Route> classRoutes = new LinkedHashMap<>();
+        private Function<? super T, ?> discriminator = null;
+        private final Map<Object, Route> discriminatorRoutes = new HashMap<>();
+        private Route fallback = null;
+
+        /**
+         * Adds the route for the class and its subclasses.
+         *
+         * @param type the class of data
+         * @param dataFormat the format of the data
+         * @param extractor the extractor of the values of the data
+         * @param <S> the class of data
+         * @return this builder
+         */
+        public <S extends T> Builder<T> route(
+                final Class<S> type,
+                final DataFormat dataFormat,
+                final ValueExtractor<? super S> extractor) {
+
+            Objects.requireNonNull(type);
+            if (classRoutes.containsKey(type)) {
+                throw new IllegalArgumentException("A route for the class '" + type.getName() + "' is already added.");
+            }
+
+            classRoutes.put(type, new Route(dataFormat, extractor));
+            return this;
+        }
+
+        /**
+         * Adds the route for the class and its subclasses,
+         * whose values are extracted by the accessors of the class as {@link ValueProviderAdapter#forClass(Class)}.
+         *
+         * @param type the class of data
+         * @param dataFormat the format of the data
+         * @param <S> the class of data
+         * @return this builder
+         */
+        public <S extends T> Builder<T> route(final Class<S> type, final DataFormat dataFormat) {
+            return route(type, dataFormat, new ValueExtractorConcrete<>(ClassAccessors.of(type)));
+        }
+
+        /**
+         * Specifies the function which returns the discriminator value of data.
+         *
+         * <p>
+         * The routes added by {@link #routeByDiscriminator(Object, DataFormat, ValueExtractor)} are chosen
+         * by the discriminator value, and take precedence over the routes by classes.
+         * </p>
+         *
+         * @param discriminator the function which returns the discriminator value of data
+         * @return this builder
+         */
+        public Builder<T> discriminator(final Function<? super T, ?> discriminator) {
+            this.discriminator = Objects.requireNonNull(discriminator);
+            return this;
+        }
+
+        /**
+         * Adds the route for the discriminator value.
+         *
+         * @param discriminatorValue the discriminator value
+         * @param dataFormat the format of the data
+         * @param extractor the extractor of the values of the data
+         * @return this builder
+         */
+        public Builder<T> routeByDiscriminator(
+                final Object discriminatorValue,
+                final DataFormat dataFormat,
+                final ValueExtractor<? super T> extractor) {
+
+            if (discriminatorRoutes.containsKey(discriminatorValue)) {
+                throw new IllegalArgumentException(
+                        "A route for the discriminator '" + discriminatorValue + "' is already added.");
+            }
+
+            discriminatorRoutes.put(discriminatorValue, new Route(dataFormat, extractor));
+            return this;
+        }
+
+        /**
+         * Specifies the route for data which match no other route.
+         *
+         * @param dataFormat the format of the data
+         * @param extractor the extractor of the values of the data
+         * @return this builder
+         */
+        public Builder<T> fallback(final DataFormat dataFormat, final ValueExtractor<? super T> extractor) {
+            this.fallback = new Route(dataFormat, extractor);
+            return this;
+        }
+
+        public DataFormatRouter<T> build() {
+            if (!discriminatorRoutes.isEmpty() && discriminator == null) {
+                throw new IllegalStateException("routes for discriminator values require a discriminator");
+            }
+            return new DataFormatRouter<>(this);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.Formattable;
+import java.util.FormattableFlags;
+import java.util.Formatter;
+import java.util.Objects;
+
+/**
+ * DeferredFormat is the text which is formatted when it is used for the first time.
+ *
+ * <p>
+ * It is created by {@link DataFormat#defer(ValueProvider)}, and holds only the references to the format and the data
+ * until {@link #toString()}, {@link #appendTo(StringBuilder)} or another method of CharSequence is called.
+ * The formatted text is cached, and the references are released after formatting.
+ * It is useful as an argument of logging which may be discarded by the log level or sampling,
+ * since the cost of formatting is paid only if the text is used.
+ * </p>
+ *
+ * <p>
+ * Since the values are retrieved when the text is formatted, the data must not be changed until then.
+ * This object can be used from several threads, and the data are formatted only once.
+ * </p>
+ */
+public final class DeferredFormat implements CharSequence, Formattable {
+    private DataFormat dataFormat;
+    private ValueProvider valueProvider;
+    private FieldWidthProvider fieldWidthProvider;
+    private volatile String text = null;
+
+    DeferredFormat(
+            final DataFormat dataFormat,
+            final ValueProvider valueProvider,
+            final FieldWidthProvider fieldWidthProvider) {
+
+        this.dataFormat = Objects.requireNonNull(dataFormat);
+        this.valueProvider = Objects.requireNonNull(valueProvider);
+        this.fieldWidthProvider = fieldWidthProvider != null ? fieldWidthProvider : FieldWidthProvider.empty;
+    }
+
+    /**
+     * Returns whether the text has been formatted.
+     *
+     * @return true if the text has been formatted
+     */
+    public boolean isFormatted() {
+        return text != null;
+    }
+
+    /**
+     * Appends the formatted text to the string builder.
+     *
+     * @param toAppendTo the string buffer to which the formatted text is to be appended
+     * @return the value passed in as toAppendTo
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public StringBuilder appendTo(final StringBuilder toAppendTo) {
+        return toAppendTo.append(text());
+    }
+
+    private String text() {
+        String text = this.text;
+        if (text == null) {
+            synchronized (this) {
+                text = this.text;
+                if (text == null) {
+                    text = dataFormat.format(valueProvider, fieldWidthProvider);
+                    this.text = text;
+
+                    // the references are no longer needed
+                    dataFormat = null;
+                    valueProvider = null;
+                    fieldWidthProvider = null;
+                }
+            }
+        }
+        return text;
+    }
+
+    @Override
+    public int length() {
+        return text().length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        return text().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return text().subSequence(start, end);
+    }
+
+    /**
+     * Writes the formatted text to the formatter, for {@code %s} of {@link String#format(String, Object...)}.
+     *
+     * <p>
+     * The width, the precision and the flags {@code -} and {@code S} are applied as for Strings.
+     * </p>
+     */
+    @Override
+    public void formatTo(final Formatter formatter, final int flags, final int width, final int precision) {
+        final StringBuilder spec = new StringBuilder("%");
+        if ((flags & FormattableFlags.LEFT_JUSTIFY) != 0) {
+            spec.append('-');
+        }
+        if (width >= 0) {
+            spec.append(width);
+        }
+        if (precision >= 0) {
+            spec.append('.').append(precision);
+        }
+        spec.append((flags & FormattableFlags.UPPERCASE) != 0 ? 'S' : 's');
+
+        formatter.format(spec.toString(), text());
+    }
+
+    /**
+     * Returns the formatted text.
+     *
+     * @return the formatted text
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    @Override
+    public String toString() {
+        return text();
+    }
+}
@@ -0,0 +1,63 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.MissingFormatArgumentException;
+import java.util.Objects;
+
+/**
+ * The policy of formatting a variable whose value does not exist.
+ *
+ * <p>
+ * Except for {@link #FAIL}, missing values are handled without throwing any exception
+ * as long as the ValueProvider reports absence by {@link ValueProvider#find(String)}.
+ * </p>
+ */
+public final class MissingValuePolicy {
+    /**
+     * The formatting fails with {@link MissingFormatArgumentException}. This is the default policy.
+     */
+    public static final MissingValuePolicy FAIL = new MissingValuePolicy(null);
+
+    /**
+     * The variable is skipped; that is, it is formatted as an empty string.
+     */
+    public static final MissingValuePolicy EMPTY = new MissingValuePolicy("");
+
+    private final Object defaultValue;
+
+    private MissingValuePolicy(final Object defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Returns the policy that the variable is formatted with the default value.
+     *
+     * @param defaultValue the value used instead of the missing value
+     * @return the policy
+     */
+    public static MissingValuePolicy defaultValue(final Object defaultValue) {
+        return new MissingValuePolicy(Objects.requireNonNull(defaultValue));
+    }
+
+    /**
+     * Returns the default value of this policy.
+     *
+     * @return the default value, or null if this policy is {@link #FAIL}
+     */
+    public Object getDefaultValue() {
+        return this.defaultValue;
+    }
+
+    /**
+     * Returns the value used instead of the missing value.
+     *
+     * @param key the key of the missing value
+     * @return the value to format
+     * @throws MissingFormatArgumentException if this policy is {@link #FAIL}
+     */
+    Object resolve(final String key) {
+        if (defaultValue == null) {
+            throw new MissingFormatArgumentException(key);
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,179 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.*;
+
+/**
+ * The buffer of rows which holds only the values of the variables, column by column.
+ *
+ * <p>
+ * Each column is dictionary-encoded while the number of distinct values in it is small;
+ * equal values are stored only once, and each row holds an int code of the value.
+ * When the number of distinct values exceeds {@link #MAX_DICTIONARY_SIZE},
+ * the column stores the values of the rows as they are.
+ * </p>
+ */
+class ProjectedRowBuffer {
+    static final int MAX_DICTIONARY_SIZE = 256;
+
+    private final Map<String, Integer> columnIndices = new HashMap<>();
+    private final String[] columnNames;
+    private final Column[] columns;
+    private int size = 0;
+
+    ProjectedRowBuffer(final List<String> variableNames) {
+        final List<String> columnNames = new ArrayList<>();
+        for (final String variableName : variableNames) {
+            if (!columnIndices.containsKey(variableName)) {
+                columnIndices.put(variableName, columnNames.size());
+                columnNames.add(variableName);
+            }
+        }
+
+        this.columnNames = columnNames.toArray(new String[0]);
+        this.columns = new Column[this.columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new Column();
+        }
+    }
+
+    /**
+     * Adds a row which consists of the values of the variables.
+     *
+     * @param valueProvider the provider of the values of the row
+     * @return the index of the added row
+     */
+    int add(final ValueProvider valueProvider) {
+        for (int i = 0; i < columns.length; i++) {
+            // the values outlive the provider, which may reuse a CharSequence for each row
+            columns[i].add(size, CharSequences.retained(valueProvider.find(columnNames[i])));
+        }
+        return size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        for (final Column column : columns) {
+            column.clear();
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns the ValueProvider of the row.
+     *
+     * <p>
+     * The returned object can be moved to another row by {@link Row#moveTo(int)} to avoid allocation per row.
+     * </p>
+     *
+     * @param rowIndex the index of the row
+     * @return the ValueProvider of the row
+     */
+    Row row(final int rowIndex) {
+        return new Row(rowIndex);
+    }
+
+    /**
+     * Returns whether the column of the variable is dictionary-encoded.
+     */
+    boolean isDictionaryEncoded(final String variableName) {
+        return columns[columnIndices.get(variableName)].dictionary != null;
+    }
+
+    class Row implements ValueProvider {
+        private int rowIndex;
+
+        private Row(final int rowIndex) {
+            this.rowIndex = rowIndex;
+        }
+
+        Row moveTo(final int rowIndex) {
+            this.rowIndex = rowIndex;
+            return this;
+        }
+
+        @Override
+        public Object get(final String key) {
+            final Object value = find(key);
+            if (value == MISSING) {
+                throw new IllegalArgumentException(key);
+            }
+            return value;
+        }
+
+        @Override
+        public Object find(final String key) {
+            final Integer columnIndex = columnIndices.get(key);
+            if (columnIndex == null) {
+                return MISSING;
+            }
+            return columns[columnIndex].get(rowIndex);
+        }
+    }
+
+    private static class Column {
+        // while dictionary-encoded, codes[i] is the index of the value of the i-th row in dictionaryValues
+        private Map<Object, Integer> dictionary = new HashMap<>();
+        private final List<Object> dictionaryValues = new ArrayList<>();
+        private int[] codes = new int[16];
+        // after the number of distinct values exceeds MAX_DICTIONARY_SIZE, the values are stored as they are
+        private Object[] values = null;
+
+        void add(final int rowIndex, final Object value) {
+            if (dictionary != null) {
+                Integer code = dictionary.get(value);
+                if (code == null && dictionaryValues.size() < MAX_DICTIONARY_SIZE) {
+                    code = dictionaryValues.size();
+                    dictionary.put(value, code);
+                    dictionaryValues.add(value);
+                }
+                if (code != null) {
+                    if (rowIndex >= codes.length) {
+                        codes = Arrays.copyOf(codes, Math.max(codes.length * 2, rowIndex + 1));
+                    }
+                    codes[rowIndex] = code;
+                    return;
+                }
+                decode(rowIndex);
+            }
+
+            if (rowIndex >= values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, rowIndex + 1));
+            }
+            values[rowIndex] = value;
+        }
+
+        Object get(final int rowIndex) {
+            if (dictionary != null) {
+                return dictionaryValues.get(codes[rowIndex]);
+            }
+            return values[rowIndex];
+        }
+
+        void clear() {
+            if (dictionary == null) {
+                // start again with the dictionary, since the next block may have few distinct values
+                dictionary = new HashMap<>();
+                codes = new int[16];
+                values = null;
+            }
+            dictionary.clear();
+            dictionaryValues.clear();
+        }
+
+        /**
+         * Stops dictionary-encoding and stores the values of the rows as they are.
+         */
+        private void decode(final int rowCount) {
+            values = new Object[Math.max(16, rowCount * 2)];
+            for (int i = 0; i < rowCount; i++) {
+                values[i] = dictionaryValues.get(codes[i]);
+            }
+            dictionary = null;
+            dictionaryValues.clear();
+            codes = null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package jp.unaguna.fmtbuilder;
+
+/**
+ * Appends repeated chars.
+ *
+ * <p>
+ * This class has another implementation for newer JDKs in the multi-release JAR
+ * (src/main/java21); keep the signatures of both implementations identical.
+ * Only the code which differs among the JDKs belongs here; the rest is in {@link StringBuilders}.
+ * </p>
+ */
+final class RepeatedChars {
+    private RepeatedChars() {
+    }
+
+    /**
+     * Appends the char repeatedly.
+     *
+     * @param stringBuilder the string buffer to which the chars are to be appended
+     * @param c the char to append
+     * @param count the number of chars to append; must be positive
+     */
+    static void append(final StringBuilder stringBuilder, final char c, final int count) {
+        if (c == ' ') {
+            int remaining = count;
+            while (remaining > StringBuilders.CHUNK_SIZE) {
+                stringBuilder.append(StringBuilders.SPACES, 0, StringBuilders.CHUNK_SIZE);
+                remaining -= StringBuilders.CHUNK_SIZE;
+            }
+            stringBuilder.append(StringBuilders.SPACES, 0, remaining);
+        } else {
+            for (int i = 0; i < count; i++) {
+                stringBuilder.append(c);
+            }
+        }
+    }
+}
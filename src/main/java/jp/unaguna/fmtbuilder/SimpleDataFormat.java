@@ -3,17 +3,20 @@ package jp.unaguna.fmtbuilder;
 import java.util.*;
 
 public class SimpleDataFormat implements DataFormat {
-    private final List<DataFormatPart> formatParts;
+    // an array rather than a List so that formatting iterates over the parts without allocating an Iterator
+    private final DataFormatPart[] formatParts;
     private final List<String> variables;
 
     SimpleDataFormat(final List<DataFormatPart> formatParts) {
-        this.formatParts = formatParts;
+        this.formatParts = formatParts.toArray(new DataFormatPart[0]);
 
         final List<String> variables = new ArrayList<>();
         formatParts.forEach(part -> {
             final String variableName = part.variableName();
             if (variableName != null) {
                 variables.add(variableName);
+            } else if (part instanceof DataFormatPartFormat) {
+                variables.addAll(((DataFormatPartFormat) part).getDataFormat().getVariableNames());
             }
         });
         this.variables = Collections.unmodifiableList(variables);
@@ -57,12 +60,124 @@ public class SimpleDataFormat implements DataFormat {
 
                 formatPart.format(toAppendTo, valueProvider, width);
             }
+        } catch (final DataFormattingException e) {
+            // thrown by an embedded format; it already describes the error
+            throw e;
         } catch (final Exception e) {
             throw new DataFormattingException("some error occurred during formatting data", e);
         }
         return toAppendTo;
     }
 
+    @Override
+    public int measure(final ValueProvider valueProvider, FieldWidthProvider fieldWidthProvider) {
+        if (fieldWidthProvider == null) {
+            fieldWidthProvider = FieldWidthProvider.empty;
+        }
+
+        int length = 0;
+        try {
+            for (final DataFormatPart formatPart : formatParts) {
+                length += formatPart.measure(valueProvider, widthOf(formatPart, fieldWidthProvider));
+            }
+        } catch (final DataFormattingException e) {
+            // thrown by an embedded format; it already describes the error
+            throw e;
+        } catch (final Exception e) {
+            throw new DataFormattingException("some error occurred during measuring data", e);
+        }
+        return length;
+    }
+
+    @Override
+    public int measureUtf8(final ValueProvider valueProvider, FieldWidthProvider fieldWidthProvider) {
+        if (fieldWidthProvider == null) {
+            fieldWidthProvider = FieldWidthProvider.empty;
+        }
+
+        int length = 0;
+        try {
+            for (final DataFormatPart formatPart : formatParts) {
+                length += formatPart.measureUtf8(valueProvider, widthOf(formatPart, fieldWidthProvider));
+            }
+        } catch (final DataFormattingException e) {
+            // thrown by an embedded format; it already describes the error
+            throw e;
+        } catch (final Exception e) {
+            throw new DataFormattingException("some error occurred during measuring data", e);
+        }
+        return length;
+    }
+
+    private static Integer widthOf(final DataFormatPart formatPart, final FieldWidthProvider fieldWidthProvider) {
+        final String variableName = formatPart.variableName();
+        return variableName != null ? fieldWidthProvider.getWidth(variableName) : null;
+    }
+
+    @Override
+    public DataFormat bind(final ValueProvider partial) {
+        final List<DataFormatPart> boundParts = new ArrayList<>(formatParts.length);
+        try {
+            for (final DataFormatPart formatPart : formatParts) {
+                boundParts.add(bindPart(formatPart, partial));
+            }
+        } catch (final DataFormattingException e) {
+            throw e;
+        } catch (final Exception e) {
+            throw new DataFormattingException("some error occurred during rendering bound values", e);
+        }
+
+        // inline the parts so that the new constants are merged with the neighboring ones
+        return new DataFormat.Builder()
+                .format(new SimpleDataFormat(boundParts))
+                .build();
+    }
+
+    private static DataFormatPart bindPart(final DataFormatPart formatPart, final ValueProvider partial) {
+        if (formatPart instanceof DataFormatPartFormat) {
+            return new DataFormatPartFormat(((DataFormatPartFormat) formatPart).getDataFormat().bind(partial));
+        }
+
+        final String variableName = formatPart.variableName();
+        if (!(formatPart instanceof DataFormatPartString) || partial.find(variableName) == ValueProvider.MISSING) {
+            return formatPart;
+        }
+
+        final StringBuilder text = new StringBuilder();
+        formatPart.format(text, partial, null);
+
+        final ValuePadding padding = ((DataFormatPartString) formatPart).getPadding();
+        if (padding == ValuePadding.NONE) {
+            return new DataFormatPartConstant(text.toString());
+        }
+        return new DataFormatPartBound(variableName, padding, text.toString(), formatPart.valueWidth(partial));
+    }
+
+    /**
+     * Updates the width of each variable in the holder with the widths of the values as this format renders them.
+     *
+     * @return the sum of the widths of the values
+     */
+    int updateWidth(final ValueProvider valueProvider, final TableFieldHolder widthHolder) {
+        int totalWidth = 0;
+        for (final DataFormatPart formatPart : formatParts) {
+            final String variableName = formatPart.variableName();
+            if (variableName != null) {
+                final int valueWidth = formatPart.valueWidth(valueProvider);
+                widthHolder.updateWidth(variableName, valueWidth);
+                totalWidth += valueWidth;
+            }
+        }
+        return totalWidth;
+    }
+
+    /**
+     * Returns the parts of this format.
+     */
+    List<DataFormatPart> getFormatParts() {
+        return Collections.unmodifiableList(Arrays.asList(formatParts));
+    }
+
     @Override
     public List<String> getVariableNames() {
         return this.variables;
@@ -0,0 +1,65 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.Arrays;
+
+/**
+ * Utilities for StringBuilder.
+ *
+ * <p>
+ * The appending of repeated chars is delegated to {@link RepeatedChars},
+ * which has another implementation for newer JDKs in the multi-release JAR (src/main/java21).
+ * </p>
+ */
+final class StringBuilders {
+    static final int CHUNK_SIZE = 64;
+    static final char[] SPACES = new char[CHUNK_SIZE];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    private StringBuilders() {
+    }
+
+    /**
+     * Appends the char repeatedly.
+     *
+     * @param stringBuilder the string buffer to which the chars are to be appended
+     * @param c the char to append
+     * @param count the number of chars to append; nothing is appended if it is not positive
+     */
+    static void appendRepeated(final StringBuilder stringBuilder, final char c, final int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        RepeatedChars.append(stringBuilder, c, count);
+    }
+
+    /**
+     * Inserts the char repeatedly.
+     *
+     * @param stringBuilder the string buffer into which the chars are to be inserted
+     * @param offset the offset at which the chars are to be inserted
+     * @param c the char to insert
+     * @param count the number of chars to insert; nothing is inserted if it is not positive
+     */
+    static void insertRepeated(final StringBuilder stringBuilder, final int offset, final char c, final int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        if (c == ' ') {
+            int remaining = count;
+            while (remaining > CHUNK_SIZE) {
+                stringBuilder.insert(offset, SPACES, 0, CHUNK_SIZE);
+                remaining -= CHUNK_SIZE;
+            }
+            stringBuilder.insert(offset, SPACES, 0, remaining);
+        } else {
+            for (int i = 0; i < count; i++) {
+                stringBuilder.insert(offset, c);
+            }
+        }
+    }
+}
@@ -17,15 +17,52 @@ import java.util.*;
  * you can also use {@link #nextFormat(StringBuilder)}, which appends the formatted string to the StringBuilder.
  * </p>
  *
+ * <p>
+ * With {@link #setProjectionBuffering(boolean)}, only the values of the variables are buffered
+ * instead of the data themselves, so that the data can be garbage-collected right after the width pass.
+ * </p>
+ *
+ * <p>
+ * To align the lines formatted separately, such as the shards of a table formatted by different workers,
+ * export the widths of each part by {@link #getColumnWidthSummary()}, merge them,
+ * and give the merged widths to each iterator by {@link #setMinimumWidths(FieldWidthProvider)}.
+ * </p>
+ *
+ * <p>
+ * If the data source can be read twice, {@link TwoPassTableDataFormatIterator} aligns all lines
+ * without buffering the data.
+ * </p>
+ *
  * @param <T> Data equivalent to one line
  */
 public class TableDataFormatIterator<T> implements Iterator<String> {
+    // rough estimates of the heap used by a buffered row: the row itself and a String for each value
+    private static final int ROW_OVERHEAD_BYTES = 16;
+    private static final int CELL_OVERHEAD_BYTES = 40;
+    static final int INITIAL_ADAPTIVE_BLOCK_SIZE = 256;
+    static final int MIN_ADAPTIVE_BLOCK_SIZE = 16;
+    // the upper limit of the adaptive mode when the block size is not set
+    static final int MAX_ADAPTIVE_BLOCK_SIZE = 65536;
+
     private int blockSize = Integer.MAX_VALUE;
+    private long blockByteBudget = Long.MAX_VALUE;
+    private boolean adaptiveBlockSize = false;
+    private int adaptiveBlockLimit = INITIAL_ADAPTIVE_BLOCK_SIZE;
+    // the widths of the previous block, to see whether the columns are aligned across blocks
+    private Map<String, Integer> previousWidths = null;
     private final DataFormat baseDataFormat;
     private final ValueProviderAdapter<T> adapter;
     private final Iterator<T> dataIterator;
-    private final List<T> dataBuffer = new LinkedList<>();
+    // the buffered data are dataBuffer[dataBufferHead..]; the list is reused across blocks to avoid allocation
+    private final List<T> dataBuffer = new ArrayList<>();
+    private int dataBufferHead = 0;
+    // used instead of dataBuffer in projection buffering mode; the rows are projectedBuffer[projectedBufferHead..]
+    private ProjectedRowBuffer projectedBuffer = null;
+    private ProjectedRowBuffer.Row projectedRow = null;
+    private int projectedBufferHead = 0;
+    private boolean projectionBuffering = false;
     private final TableFieldHolder widthProvider = new TableFieldHolder();
+    private FieldWidthProvider minimumWidths = null;
 
     public TableDataFormatIterator(
             final DataFormat baseDataFormat, final Iterator<T> dataIterator, final ValueProviderAdapter<T> adapter) {
@@ -35,6 +72,64 @@ public class TableDataFormatIterator<T> implements Iterator<String> {
         this.adapter = adapter;
     }
 
+    /**
+     * Creates the iterator which outputs the data in the order of the comparator.
+     *
+     * <p>
+     * All data are read and sorted when the first line is requested.
+     * </p>
+     *
+     * @param baseDataFormat the format of each line
+     * @param dataIterator the data
+     * @param adapter the adapter to retrieve the values from the data
+     * @param comparator the order of the lines
+     * @param <T> Data equivalent to one line
+     * @return the iterator of the sorted lines
+     */
+    public static <T> TableDataFormatIterator<T> sorted(
+            final DataFormat baseDataFormat,
+            final Iterator<? extends T> dataIterator,
+            final ValueProviderAdapter<T> adapter,
+            final Comparator<? super T> comparator) {
+
+        return top(baseDataFormat, dataIterator, adapter, comparator, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates the iterator which outputs the first data in the order of the comparator, up to the limit.
+     *
+     * <p>
+     * The data are read when the first line is requested, and only the first {@code limit} data are retained
+     * in a bounded heap, so the memory used is proportional to the limit instead of the number of data.
+     * The widths of the columns are computed from the retained data only.
+     * The order of the data which are equal in the comparator is unspecified.
+     * </p>
+     *
+     * @param baseDataFormat the format of each line
+     * @param dataIterator the data
+     * @param adapter the adapter to retrieve the values from the data
+     * @param comparator the order of the lines
+     * @param limit the maximum number of lines
+     * @param <T> Data equivalent to one line
+     * @return the iterator of the first lines
+     */
+    public static <T> TableDataFormatIterator<T> top(
+            final DataFormat baseDataFormat,
+            final Iterator<? extends T> dataIterator,
+            final ValueProviderAdapter<T> adapter,
+            final Comparator<? super T> comparator,
+            final int limit) {
+
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive integer");
+        }
+
+        return new TableDataFormatIterator<>(
+                baseDataFormat,
+                new TopIterator<T>(dataIterator, Objects.requireNonNull(comparator), limit),
+                adapter);
+    }
+
     public void setBlockSize(final int blockSize) {
         if (blockSize <= 0) {
             throw new IllegalArgumentException("blockSize must be positive integer");
@@ -47,29 +142,199 @@ public class TableDataFormatIterator<T> implements Iterator<String> {
         return this.blockSize;
     }
 
+    /**
+     * Sets the upper limit of the estimated heap size of a block in bytes.
+     *
+     * <p>
+     * The size of each data is estimated from the widths of its values measured in the width pass,
+     * and a block ends when the sum of the estimates reaches the budget or the number of data reaches the block size.
+     * A block contains at least one data.
+     * </p>
+     *
+     * @param blockByteBudget the upper limit of the estimated heap size of a block
+     */
+    public void setBlockByteBudget(final long blockByteBudget) {
+        if (blockByteBudget <= 0) {
+            throw new IllegalArgumentException("blockByteBudget must be positive integer");
+        }
+
+        this.blockByteBudget = blockByteBudget;
+    }
+
+    public long getBlockByteBudget() {
+        return this.blockByteBudget;
+    }
+
+    /**
+     * Sets whether the number of data in a block is adjusted block by block.
+     *
+     * <p>
+     * In this mode, when the widths of the columns change from the previous block,
+     * which means that the columns are not aligned across the blocks, the next block becomes larger.
+     * When the widths do not change, the next block becomes smaller to save the heap.
+     * The first block has nothing to compare with, so the second block has the same number of data.
+     * The number is also limited so that the block, estimated from the observed sizes of data,
+     * fits the byte budget. The block size set by {@link #setBlockSize(int)} is the upper limit;
+     * if it is not set, the number is at most 65536 so that the memory stays bounded.
+     * </p>
+     *
+     * @param adaptiveBlockSize true to adjust the number of data in a block
+     */
+    public void setAdaptiveBlockSize(final boolean adaptiveBlockSize) {
+        this.adaptiveBlockSize = adaptiveBlockSize;
+    }
+
+    public boolean isAdaptiveBlockSize() {
+        return this.adaptiveBlockSize;
+    }
+
+    /**
+     * Returns the maximum number of data in the next block.
+     */
+    int currentBlockLimit() {
+        return adaptiveBlockSize ? Math.min(blockSize, adaptiveBlockLimit) : blockSize;
+    }
+
+    /**
+     * Sets whether only the values of the variables are buffered instead of the data themselves.
+     *
+     * <p>
+     * In this mode, the values are retrieved from the adapter once per data, and the data are not retained.
+     * Columns with few distinct values, such as a status, are dictionary-encoded
+     * and each row holds only an int code for them.
+     * The setting takes effect from the next block.
+     * </p>
+     *
+     * @param projectionBuffering true to buffer only the values of the variables
+     */
+    public void setProjectionBuffering(final boolean projectionBuffering) {
+        this.projectionBuffering = projectionBuffering;
+    }
+
+    public boolean isProjectionBuffering() {
+        return this.projectionBuffering;
+    }
+
+    /**
+     * Sets the minimum width of each variable, which is applied to every block.
+     *
+     * <p>
+     * If a block is already loaded, the lines remaining in it are also formatted with the minimum widths.
+     * </p>
+     *
+     * @param minimumWidths the minimum widths, such as a merged {@link ColumnWidthSummary}; null to unset
+     */
+    public void setMinimumWidths(final FieldWidthProvider minimumWidths) {
+        this.minimumWidths = minimumWidths;
+        if (minimumWidths != null) {
+            widthProvider.raiseWidths(baseDataFormat, minimumWidths);
+        }
+    }
+
+    public FieldWidthProvider getMinimumWidths() {
+        return this.minimumWidths;
+    }
+
+    /**
+     * Returns the widths of the columns of the lines in the current block.
+     *
+     * <p>
+     * If no line remains in the current block, the next block is loaded and measured first.
+     * With the default block size, all data are in one block, so the result is the widths of all data.
+     * </p>
+     *
+     * @return the widths of the current block
+     */
+    public ColumnWidthSummary getColumnWidthSummary() {
+        if (isBufferEmpty() && dataIterator.hasNext()) {
+            loadNextBlock();
+        }
+        return widthProvider.toSummary();
+    }
+
+    private boolean isBufferEmpty() {
+        return dataBufferHead >= dataBuffer.size()
+                && (projectedBuffer == null || projectedBufferHead >= projectedBuffer.size());
+    }
+
     private void loadNextBlock() {
-        if (!dataBuffer.isEmpty()) {
+        if (!isBufferEmpty()) {
             throw new IllegalStateException("cannot load next data block; buffer is not empty");
         }
 
+        dataBuffer.clear();
+        dataBufferHead = 0;
         widthProvider.clear();
+        if (minimumWidths != null) {
+            widthProvider.raiseWidths(baseDataFormat, minimumWidths);
+        }
+
+        final int blockLimit = currentBlockLimit();
+        final int cellOverheadBytes = CELL_OVERHEAD_BYTES * baseDataFormat.getVariableNames().size();
+        int rowCount = 0;
+        long blockBytes = 0;
 
-        while (dataIterator.hasNext() && dataBuffer.size() < blockSize) {
+        if (projectionBuffering) {
+            if (projectedBuffer == null) {
+                projectedBuffer = new ProjectedRowBuffer(baseDataFormat.getVariableNames());
+                projectedRow = projectedBuffer.row(0);
+            }
+            projectedBuffer.clear();
+            projectedBufferHead = 0;
+        }
+
+        while (dataIterator.hasNext() && rowCount < blockLimit && blockBytes < blockByteBudget) {
             final T nextData = dataIterator.next();
-            synchronized (adapter) {
-                adapter.setElement(nextData);
-                for (final String variableName : baseDataFormat.getVariableNames()) {
-                    final String value = adapter.get(variableName).toString();
-                    widthProvider.updateWidth(variableName, value.length());
+            final int rowWidth;
+            if (projectionBuffering) {
+                final int rowIndex;
+                synchronized (adapter) {
+                    adapter.setElement(nextData);
+                    rowIndex = projectedBuffer.add(adapter);
+                }
+                // measure the buffered values so that each value is retrieved from the adapter only once
+                rowWidth = widthProvider.updateWidth(baseDataFormat, projectedRow.moveTo(rowIndex));
+            } else {
+                synchronized (adapter) {
+                    adapter.setElement(nextData);
+                    rowWidth = widthProvider.updateWidth(baseDataFormat, adapter);
                 }
+                dataBuffer.add(nextData);
             }
-            dataBuffer.add(nextData);
+
+            rowCount++;
+            blockBytes += ROW_OVERHEAD_BYTES + cellOverheadBytes + 2L * rowWidth;
+        }
+
+        if (adaptiveBlockSize && rowCount > 0) {
+            adaptBlockLimit(rowCount, blockBytes);
         }
     }
 
+    private void adaptBlockLimit(final int rowCount, final long blockBytes) {
+        final Map<String, Integer> widths = widthProvider.snapshot();
+        long nextLimit;
+        if (previousWidths == null) {
+            // nothing to compare with in the first block; only the widths are recorded
+            nextLimit = adaptiveBlockLimit;
+        } else if (!widths.equals(previousWidths)) {
+            // the columns are not aligned with the previous block; align more data together
+            nextLimit = 2L * adaptiveBlockLimit;
+        } else {
+            nextLimit = adaptiveBlockLimit / 2;
+        }
+        if (blockByteBudget != Long.MAX_VALUE) {
+            nextLimit = Math.min(nextLimit, blockByteBudget / Math.max(1, blockBytes / rowCount));
+        }
+
+        final int maxLimit = blockSize != Integer.MAX_VALUE ? blockSize : MAX_ADAPTIVE_BLOCK_SIZE;
+        adaptiveBlockLimit = (int) Math.max(MIN_ADAPTIVE_BLOCK_SIZE, Math.min(nextLimit, maxLimit));
+        previousWidths = widths;
+    }
+
     @Override
     public boolean hasNext() {
-        return !dataBuffer.isEmpty() || dataIterator.hasNext();
+        return !isBufferEmpty() || dataIterator.hasNext();
     }
 
     @Override
@@ -80,38 +345,81 @@ public class TableDataFormatIterator<T> implements Iterator<String> {
     }
 
     public void nextFormat(final StringBuilder builder) {
-        if (dataBuffer.isEmpty()) {
+        if (isBufferEmpty()) {
             loadNextBlock();
         }
 
         // error if buffer is empty even if after loadNextBlock
-        if (dataBuffer.isEmpty()) {
+        if (isBufferEmpty()) {
             throw new NoSuchElementException();
         }
 
-        final T nextData = dataBuffer.remove(0);
+        if (projectedBuffer != null && projectedBufferHead < projectedBuffer.size()) {
+            baseDataFormat.format(projectedRow.moveTo(projectedBufferHead++), widthProvider, builder);
+            return;
+        }
+
+        // release the reference so that the data can be garbage-collected before the block ends
+        final T nextData = dataBuffer.set(dataBufferHead++, null);
         synchronized(adapter) {
             adapter.setElement(nextData);
             baseDataFormat.format(adapter, widthProvider, builder);
         }
     }
 
-    private static class TableFieldHolder implements FieldWidthProvider {
-        private final Map<String, Integer> width = new HashMap<>();
+    /**
+     * The iterator of the first data in the order of the comparator, which reads all source data at first.
+     */
+    private static class TopIterator<T> implements Iterator<T> {
+        private final Iterator<? extends T> source;
+        private final Comparator<? super T> comparator;
+        private final int limit;
+        private Iterator<T> sorted = null;
 
-        public void clear() {
-            width.clear();
+        TopIterator(final Iterator<? extends T> source, final Comparator<? super T> comparator, final int limit) {
+            this.source = source;
+            this.comparator = comparator;
+            this.limit = limit;
         }
 
-        public void updateWidth(String fieldName, int minimum) {
-            if (width.getOrDefault(fieldName, 0) < minimum) {
-                width.put(fieldName, minimum);
-            }
+        @Override
+        public boolean hasNext() {
+            return sorted().hasNext();
         }
 
         @Override
-        public Integer getWidth(String fieldName) {
-            return width.get(fieldName);
+        public T next() {
+            return sorted().next();
+        }
+
+        private Iterator<T> sorted() {
+            if (sorted != null) {
+                return sorted;
+            }
+
+            final List<T> result;
+            if (limit == Integer.MAX_VALUE) {
+                result = new ArrayList<>();
+                source.forEachRemaining(result::add);
+            } else {
+                // the head of the heap is the last of the retained data
+                final PriorityQueue<T> heap = new PriorityQueue<>(
+                        Math.min(limit, 1024), Collections.reverseOrder(comparator));
+                while (source.hasNext()) {
+                    final T data = source.next();
+                    if (heap.size() < limit) {
+                        heap.add(data);
+                    } else if (comparator.compare(data, heap.peek()) < 0) {
+                        heap.poll();
+                        heap.add(data);
+                    }
+                }
+                result = new ArrayList<>(heap);
+            }
+
+            result.sort(comparator);
+            sorted = result.iterator();
+            return sorted;
         }
     }
 }
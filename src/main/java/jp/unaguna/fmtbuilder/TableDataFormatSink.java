@@ -0,0 +1,296 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * The push-based counterpart of {@link TableDataFormatIterator}.
+ *
+ * <p>
+ * Data pushed by {@link #accept(Object)} are buffered into blocks.
+ * Whenever a block is completed, its lines are aligned as a table and passed to the downstream consumer
+ * on the thread which pushed the last data of the block.
+ * {@link #flush()} emits the incomplete block.
+ * </p>
+ *
+ * <p>
+ * The number of buffered data is bounded by the capacity.
+ * When the buffer is full, {@link #accept(Object)} blocks and {@link #offer(Object)} returns false
+ * until the buffered blocks are emitted, so that producers slow down instead of exhausting the heap.
+ * </p>
+ *
+ * <p>
+ * This object can be used from several threads. The blocks are emitted in the order they are completed,
+ * and the lines of a block are never interleaved with those of another block.
+ * </p>
+ *
+ * <p>
+ * The downstream consumer may push data to this sink again. Such re-entrant calls never wait:
+ * {@link #accept(Object)} accepts the data even if the buffer is full,
+ * {@link #offer(Object, long, TimeUnit)} returns false immediately if the buffer is full,
+ * and the blocks completed by them are emitted after the lines of the block being emitted.
+ * </p>
+ *
+ * @param <T> Data equivalent to one line
+ */
+public class TableDataFormatSink<T> {
+    private final DataFormat baseDataFormat;
+    private final ValueProviderAdapter<T> adapter;
+    private final Consumer<? super String> downstream;
+    private final int blockSize;
+    private final int capacity;
+
+    // guards currentBlock, readyBlocks and pendingCount
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    // held while emitting the blocks so that the blocks are emitted one by one in order
+    private final ReentrantLock emitLock = new ReentrantLock();
+    private List<T> currentBlock = new ArrayList<>();
+    private final Deque<List<T>> readyBlocks = new ArrayDeque<>();
+    // the number of data which are accepted but not emitted yet
+    private int pendingCount = 0;
+
+    /**
+     * Creates the sink.
+     *
+     * @param baseDataFormat the format of each line
+     * @param adapter the adapter to retrieve the values from the data
+     * @param blockSize the number of data aligned together
+     * @param capacity the maximum number of data buffered in this sink; must not be less than blockSize
+     * @param downstream the consumer which receives the formatted lines
+     */
+    public TableDataFormatSink(
+            final DataFormat baseDataFormat,
+            final ValueProviderAdapter<T> adapter,
+            final int blockSize,
+            final int capacity,
+            final Consumer<? super String> downstream) {
+
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive integer");
+        }
+        if (capacity < blockSize) {
+            throw new IllegalArgumentException("capacity must not be less than blockSize");
+        }
+
+        this.baseDataFormat = baseDataFormat;
+        this.adapter = adapter;
+        this.blockSize = blockSize;
+        this.capacity = capacity;
+        this.downstream = downstream;
+    }
+
+    public int getBlockSize() {
+        return this.blockSize;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of data which are accepted but not emitted yet.
+     *
+     * @return the number of pending data
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pendingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Pushes the data, waiting if the buffer is full.
+     *
+     * @param data the data to push
+     * @throws InterruptedException if interrupted while waiting
+     * @throws DataFormattingException if some error occurred during formatting the completed block
+     */
+    public void accept(final T data) throws InterruptedException {
+        final boolean reentrant = isEmitting();
+        final boolean completed;
+        lock.lockInterruptibly();
+        try {
+            // the thread emitting the blocks cannot wait for itself
+            while (!reentrant && pendingCount >= capacity) {
+                notFull.await();
+            }
+            completed = enqueue(data);
+        } finally {
+            lock.unlock();
+        }
+
+        if (completed && !reentrant) {
+            emitReadyBlocks();
+        }
+    }
+
+    /**
+     * Pushes the data if the buffer is not full.
+     *
+     * @param data the data to push
+     * @return true if the data is accepted, false if the buffer is full
+     * @throws DataFormattingException if some error occurred during formatting the completed block
+     */
+    public boolean offer(final T data) {
+        final boolean completed;
+        lock.lock();
+        try {
+            if (pendingCount >= capacity) {
+                return false;
+            }
+            completed = enqueue(data);
+        } finally {
+            lock.unlock();
+        }
+
+        if (completed && !isEmitting()) {
+            emitReadyBlocks();
+        }
+        return true;
+    }
+
+    /**
+     * Pushes the data, waiting up to the specified time if the buffer is full.
+     *
+     * @param data the data to push
+     * @param timeout how long to wait
+     * @param unit the unit of timeout
+     * @return true if the data is accepted, false if the buffer is still full after the waiting time
+     * @throws InterruptedException if interrupted while waiting
+     * @throws DataFormattingException if some error occurred during formatting the completed block
+     */
+    public boolean offer(final T data, final long timeout, final TimeUnit unit) throws InterruptedException {
+        final boolean reentrant = isEmitting();
+        long nanos = reentrant ? 0 : unit.toNanos(timeout);
+        final boolean completed;
+        lock.lockInterruptibly();
+        try {
+            while (pendingCount >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            completed = enqueue(data);
+        } finally {
+            lock.unlock();
+        }
+
+        if (completed && !reentrant) {
+            emitReadyBlocks();
+        }
+        return true;
+    }
+
+    /**
+     * Emits all buffered data, including the incomplete block.
+     *
+     * <p>
+     * When this method returns, all data accepted before the call have been passed to the downstream,
+     * unless it is called by the downstream; then the incomplete block is emitted after the current block.
+     * </p>
+     *
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            completeCurrentBlock();
+        } finally {
+            lock.unlock();
+        }
+
+        if (!isEmitting()) {
+            emitReadyBlocks();
+        }
+    }
+
+    /**
+     * Returns whether the current thread is emitting the blocks, that is, called by the downstream.
+     */
+    private boolean isEmitting() {
+        return emitLock.isHeldByCurrentThread();
+    }
+
+    /**
+     * Adds the data to the current block. The caller must hold the lock.
+     *
+     * @return true if the current block is completed
+     */
+    private boolean enqueue(final T data) {
+        currentBlock.add(data);
+        pendingCount++;
+        if (currentBlock.size() >= blockSize) {
+            completeCurrentBlock();
+            return true;
+        }
+        return false;
+    }
+
+    private void completeCurrentBlock() {
+        if (!currentBlock.isEmpty()) {
+            readyBlocks.add(currentBlock);
+            currentBlock = new ArrayList<>();
+        }
+    }
+
+    private void emitReadyBlocks() {
+        emitLock.lock();
+        try {
+            while (true) {
+                final List<T> block;
+                lock.lock();
+                try {
+                    block = readyBlocks.poll();
+                } finally {
+                    lock.unlock();
+                }
+                if (block == null) {
+                    return;
+                }
+
+                final List<String> lines;
+                try {
+                    lines = format(block);
+                } finally {
+                    // release the space before the downstream is called, which may push data again
+                    lock.lock();
+                    try {
+                        pendingCount -= block.size();
+                        notFull.signalAll();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                for (final String line : lines) {
+                    downstream.accept(line);
+                }
+            }
+        } finally {
+            emitLock.unlock();
+        }
+    }
+
+    private List<String> format(final List<T> block) {
+        final TableDataFormatIterator<T> iterator
+                = new TableDataFormatIterator<>(baseDataFormat, block.iterator(), adapter);
+        final List<String> lines = new ArrayList<>(block.size());
+        final StringBuilder builder = new StringBuilder();
+        while (iterator.hasNext()) {
+            builder.setLength(0);
+            iterator.nextFormat(builder);
+            lines.add(builder.toString());
+        }
+        return lines;
+    }
+}
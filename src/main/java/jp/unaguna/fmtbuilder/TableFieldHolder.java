@@ -0,0 +1,79 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The holder of the maximum width of each variable, used as a FieldWidthProvider for table formatting.
+ */
+class TableFieldHolder implements FieldWidthProvider {
+    private final Map<String, Integer> width = new HashMap<>();
+
+    public void clear() {
+        width.clear();
+    }
+
+    public void updateWidth(String fieldName, int minimum) {
+        if (width.getOrDefault(fieldName, 0) < minimum) {
+            width.put(fieldName, minimum);
+        }
+    }
+
+    /**
+     * Updates the width of each variable of the format with the values of the specified data.
+     *
+     * @param dataFormat the format whose variables are measured
+     * @param valueProvider the data to measure
+     * @return the sum of the widths of the values
+     */
+    public int updateWidth(final DataFormat dataFormat, final ValueProvider valueProvider) {
+        if (dataFormat instanceof SimpleDataFormat) {
+            return ((SimpleDataFormat) dataFormat).updateWidth(valueProvider, this);
+        }
+        if (dataFormat instanceof BoundDataFormat) {
+            return ((BoundDataFormat) dataFormat).updateWidth(valueProvider, this);
+        }
+
+        int totalWidth = 0;
+        for (final String variableName : dataFormat.getVariableNames()) {
+            final int valueWidth = CharSequences.textOf(valueProvider.get(variableName)).length();
+            updateWidth(variableName, valueWidth);
+            totalWidth += valueWidth;
+        }
+        return totalWidth;
+    }
+
+    /**
+     * Returns a copy of the current widths.
+     */
+    public Map<String, Integer> snapshot() {
+        return new HashMap<>(width);
+    }
+
+    /**
+     * Returns the current widths as a ColumnWidthSummary.
+     */
+    public ColumnWidthSummary toSummary() {
+        return ColumnWidthSummary.wrap(new HashMap<>(width));
+    }
+
+    /**
+     * Raises the width of each variable of the format to the width given by the provider.
+     *
+     * @param dataFormat the format whose variables are updated
+     * @param minimumWidths the minimum widths; a variable whose width is null is not updated
+     */
+    public void raiseWidths(final DataFormat dataFormat, final FieldWidthProvider minimumWidths) {
+        for (final String variableName : dataFormat.getVariableNames()) {
+            final Integer minimum = minimumWidths.getWidth(variableName);
+            if (minimum != null) {
+                updateWidth(variableName, minimum);
+            }
+        }
+    }
+
+    @Override
+    public Integer getWidth(String fieldName) {
+        return width.get(fieldName);
+    }
+}
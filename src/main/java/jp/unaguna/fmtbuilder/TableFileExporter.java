@@ -0,0 +1,337 @@
+package jp.unaguna.fmtbuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * TableFileExporter writes data as the lines of an aligned table to files in UTF-8, using several threads.
+ *
+ * <p>
+ * The data are split into chunks of rows, and each chunk is processed by a thread in three passes:
+ * the widths of the columns are measured and merged into the global widths,
+ * the number of bytes of the lines is measured to compute the position of the chunk in the file,
+ * and then the lines are formatted into a buffer of the thread and written at the position
+ * by {@link FileChannel#write(ByteBuffer, long)}.
+ * So no thread waits for the preceding chunks, and the lines are still written in the order of the data.
+ * </p>
+ *
+ * <p>
+ * When several paths are given, the data are split into the same number of contiguous parts,
+ * and each part is written to each file. The columns are aligned across all files.
+ * </p>
+ *
+ * <pre>{@code
+ * final TableFileExporter<Access> exporter = new TableFileExporter<>(dataFormat, accessList, extractor);
+ * exporter.setParallelism(8);
+ * exporter.export(Paths.get("report.txt"));
+ * }</pre>
+ *
+ * <p>
+ * The data are read three times, so the list must not be changed during export.
+ * Since the values are retrieved by several threads at once, the extractor must be stateless.
+ * </p>
+ *
+ * @param <T> Data equivalent to one line
+ */
+public class TableFileExporter<T> {
+    static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final DataFormat baseDataFormat;
+    private final List<? extends T> data;
+    private final ValueExtractor<? super T> extractor;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private String lineSeparator = System.lineSeparator();
+
+    /**
+     * Creates the exporter.
+     *
+     * @param baseDataFormat the format of each line
+     * @param data the data; a random access list is recommended because each thread reads a range of it
+     * @param extractor the extractor of the values of the data
+     */
+    public TableFileExporter(
+            final DataFormat baseDataFormat,
+            final List<? extends T> data,
+            final ValueExtractor<? super T> extractor) {
+
+        this.baseDataFormat = Objects.requireNonNull(baseDataFormat);
+        this.data = Objects.requireNonNull(data);
+        this.extractor = Objects.requireNonNull(extractor);
+    }
+
+    /**
+     * Sets the number of threads used for export.
+     *
+     * @param parallelism the number of threads
+     */
+    public void setParallelism(final int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive integer");
+        }
+
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return this.parallelism;
+    }
+
+    /**
+     * Sets the number of lines processed by a thread at once.
+     *
+     * <p>
+     * The formatted lines of a chunk are held in a buffer until they are written,
+     * so the memory used is proportional to the chunk size and the parallelism.
+     * </p>
+     *
+     * @param chunkSize the number of lines in a chunk
+     */
+    public void setChunkSize(final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive integer");
+        }
+
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * Sets the separator appended to each line. The default is {@link System#lineSeparator()}.
+     *
+     * @param lineSeparator the line separator
+     */
+    public void setLineSeparator(final String lineSeparator) {
+        this.lineSeparator = Objects.requireNonNull(lineSeparator);
+    }
+
+    public String getLineSeparator() {
+        return this.lineSeparator;
+    }
+
+    /**
+     * Writes all data to the file. If the file exists, it is overwritten.
+     *
+     * @param path the file to write
+     * @return the number of bytes written
+     * @throws IOException if an I/O error occurs
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public long export(final Path path) throws IOException {
+        return export(Collections.singletonList(path));
+    }
+
+    /**
+     * Splits the data into contiguous parts and writes each part to each file.
+     * If the files exist, they are overwritten.
+     *
+     * @param paths the files to write; the first part of the data is written to the first file
+     * @return the total number of bytes written
+     * @throws IOException if an I/O error occurs
+     * @throws DataFormattingException if some error occurred during formatting
+     */
+    public long export(final List<Path> paths) throws IOException {
+        if (paths.isEmpty()) {
+            throw new IllegalArgumentException("paths must not be empty");
+        }
+
+        final List<Chunk> chunks = split(paths.size());
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "TableFileExporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final List<FileChannel> channels = new ArrayList<>();
+        try {
+            // pass 1: the global widths
+            final List<Callable<ColumnWidthSummary>> measureTasks = new ArrayList<>();
+            for (final Chunk chunk : chunks) {
+                measureTasks.add(() -> measureWidths(chunk));
+            }
+            ColumnWidthSummary widths = ColumnWidthSummary.empty();
+            for (final ColumnWidthSummary chunkWidths : invokeAll(executor, measureTasks)) {
+                widths = widths.merge(chunkWidths);
+            }
+
+            // pass 2: the position of each chunk in its file
+            final ColumnWidthSummary globalWidths = widths;
+            final List<Callable<Long>> sizeTasks = new ArrayList<>();
+            for (final Chunk chunk : chunks) {
+                sizeTasks.add(() -> measureBytes(chunk, globalWidths));
+            }
+            final List<Long> sizes = invokeAll(executor, sizeTasks);
+            final long[] fileSizes = new long[paths.size()];
+            for (int i = 0; i < chunks.size(); i++) {
+                final Chunk chunk = chunks.get(i);
+                chunk.position = fileSizes[chunk.fileIndex];
+                chunk.byteLength = sizes.get(i);
+                fileSizes[chunk.fileIndex] += chunk.byteLength;
+            }
+
+            // pass 3: format and write
+            for (final Path path : paths) {
+                channels.add(FileChannel.open(path,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+            }
+            final List<Callable<Void>> writeTasks = new ArrayList<>();
+            for (final Chunk chunk : chunks) {
+                writeTasks.add(() -> {
+                    write(chunk, globalWidths, channels.get(chunk.fileIndex));
+                    return null;
+                });
+            }
+            invokeAll(executor, writeTasks);
+
+            long totalBytes = 0;
+            for (final long fileSize : fileSizes) {
+                totalBytes += fileSize;
+            }
+            return totalBytes;
+        } finally {
+            executor.shutdownNow();
+            IOException closeError = null;
+            for (final FileChannel channel : channels) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    if (closeError == null) {
+                        closeError = e;
+                    }
+                }
+            }
+            if (closeError != null) {
+                throw closeError;
+            }
+        }
+    }
+
+    /**
+     * Splits the data into the parts of the files, and then splits each part into chunks.
+     */
+    private List<Chunk> split(final int fileCount) {
+        final int size = data.size();
+        final List<Chunk> chunks = new ArrayList<>();
+        for (int fileIndex = 0; fileIndex < fileCount; fileIndex++) {
+            final int fileStart = (int) ((long) size * fileIndex / fileCount);
+            final int fileEnd = (int) ((long) size * (fileIndex + 1) / fileCount);
+            for (int start = fileStart; start < fileEnd; start += chunkSize) {
+                chunks.add(new Chunk(fileIndex, start, Math.min(fileEnd, start + chunkSize)));
+            }
+        }
+        return chunks;
+    }
+
+    private ColumnWidthSummary measureWidths(final Chunk chunk) {
+        final ValueProviderAdapter<? super T> adapter = extractor.newAdapter();
+        final TableFieldHolder widthProvider = new TableFieldHolder();
+        for (int i = chunk.start; i < chunk.end; i++) {
+            adapter.setElement(data.get(i));
+            widthProvider.updateWidth(baseDataFormat, adapter);
+        }
+        return widthProvider.toSummary();
+    }
+
+    private long measureBytes(final Chunk chunk, final FieldWidthProvider widths) {
+        final ValueProviderAdapter<? super T> adapter = extractor.newAdapter();
+        final long separatorBytes = CharSequences.utf8Length(lineSeparator);
+        long bytes = 0;
+        for (int i = chunk.start; i < chunk.end; i++) {
+            adapter.setElement(data.get(i));
+            bytes += baseDataFormat.measureUtf8(adapter, widths) + separatorBytes;
+        }
+        return bytes;
+    }
+
+    private void write(final Chunk chunk, final FieldWidthProvider widths, final FileChannel channel)
+            throws IOException {
+
+        final ValueProviderAdapter<? super T> adapter = extractor.newAdapter();
+        final StringBuilder builder = new StringBuilder();
+        for (int i = chunk.start; i < chunk.end; i++) {
+            adapter.setElement(data.get(i));
+            baseDataFormat.format(adapter, widths, builder);
+            builder.append(lineSeparator);
+        }
+
+        final ByteBuffer bytes = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+        if (bytes.remaining() != chunk.byteLength) {
+            // the lines would overwrite the neighboring chunks
+            throw new IllegalStateException("the data were changed during export");
+        }
+
+        long position = chunk.position;
+        while (bytes.hasRemaining()) {
+            position += channel.write(bytes, position);
+        }
+    }
+
+    private static <R> List<R> invokeAll(final ExecutorService executor, final List<Callable<R>> tasks)
+            throws IOException {
+
+        final List<Future<R>> futures = new ArrayList<>();
+        for (final Callable<R> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+
+        final List<R> results = new ArrayList<>();
+        try {
+            for (final Future<R> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("export was interrupted", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (final Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The range of the data processed by a thread at once.
+     */
+    private static class Chunk {
+        private final int fileIndex;
+        private final int start;
+        private final int end;
+        // the position and the length in the file, computed in the second pass
+        private long position;
+        private long byteLength;
+
+        Chunk(final int fileIndex, final int start, final int end) {
+            this.fileIndex = fileIndex;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
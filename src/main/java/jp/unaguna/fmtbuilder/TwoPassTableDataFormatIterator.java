@@ -0,0 +1,100 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * The iterator of formatted data line as table row, which reads the data source twice.
+ *
+ * <p>
+ * Unlike {@link TableDataFormatIterator}, this iterator does not buffer the data.
+ * At first, it reads all data from the source to obtain the maximum width of each variable's value.
+ * Then it reads the data from the source again and formats it one line at a time,
+ * so that the memory usage depends only on the number of variables, not on the number of lines.
+ * </p>
+ *
+ * <p>
+ * The data source is given as a supplier of iterators, such as {@code list::iterator}.
+ * It is called twice, and each returned iterator must provide the same data in the same order.
+ * </p>
+ *
+ * @param <T> Data equivalent to one line
+ */
+public class TwoPassTableDataFormatIterator<T> implements Iterator<String> {
+    private final DataFormat baseDataFormat;
+    private final ValueProviderAdapter<T> adapter;
+    private final Supplier<? extends Iterator<? extends T>> dataSource;
+    private final TableFieldHolder widthProvider = new TableFieldHolder();
+    private Iterator<? extends T> dataIterator = null;
+
+    public TwoPassTableDataFormatIterator(
+            final DataFormat baseDataFormat,
+            final Supplier<? extends Iterator<? extends T>> dataSource,
+            final ValueProviderAdapter<T> adapter) {
+
+        this.baseDataFormat = Objects.requireNonNull(baseDataFormat);
+        this.dataSource = Objects.requireNonNull(dataSource);
+        this.adapter = Objects.requireNonNull(adapter);
+    }
+
+    /**
+     * Reads all data from the source to obtain the width of each variable,
+     * and then starts reading the data again to format.
+     */
+    private void measureWidth() {
+        final Iterator<? extends T> measuringIterator = dataSource.get();
+        synchronized (adapter) {
+            while (measuringIterator.hasNext()) {
+                adapter.setElement(measuringIterator.next());
+                widthProvider.updateWidth(baseDataFormat, adapter);
+            }
+        }
+
+        dataIterator = dataSource.get();
+    }
+
+    /**
+     * Returns the widths of the columns of all data.
+     *
+     * <p>
+     * If the data have not been measured yet, they are measured first.
+     * </p>
+     *
+     * @return the widths of all data
+     */
+    public ColumnWidthSummary getColumnWidthSummary() {
+        if (dataIterator == null) {
+            measureWidth();
+        }
+        return widthProvider.toSummary();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (dataIterator == null) {
+            measureWidth();
+        }
+        return dataIterator.hasNext();
+    }
+
+    @Override
+    public String next() {
+        final StringBuilder builder = new StringBuilder();
+        this.nextFormat(builder);
+        return builder.toString();
+    }
+
+    public void nextFormat(final StringBuilder builder) {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        final T nextData = dataIterator.next();
+        synchronized (adapter) {
+            adapter.setElement(nextData);
+            baseDataFormat.format(adapter, widthProvider, builder);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package jp.unaguna.fmtbuilder;
+
+/**
+ * The escaping mode of variable values.
+ *
+ * <p>
+ * Each mode scans a value once. If the value contains no character to be escaped,
+ * it is appended as it is without creating any new object.
+ * </p>
+ */
+public enum ValueEscaping {
+    /**
+     * Values are appended verbatim.
+     */
+    NONE {
+        @Override
+        public void append(final StringBuilder stringBuilder, final CharSequence value) {
+            stringBuilder.append(value);
+        }
+
+        @Override
+        public int escapedLength(final CharSequence value) {
+            return value.length();
+        }
+
+        @Override
+        int indexOfEscaped(final CharSequence value, final int from) {
+            return -1;
+        }
+    },
+
+    /**
+     * Values are escaped as CSV fields according to RFC 4180.
+     *
+     * <p>
+     * A value containing a comma, a double quote or a line break is enclosed in double quotes,
+     * and each double quote in it is doubled.
+     * </p>
+     */
+    CSV {
+        @Override
+        public void append(final StringBuilder stringBuilder, final CharSequence value) {
+            if (indexOfEscaped(value, 0) < 0) {
+                stringBuilder.append(value);
+                return;
+            }
+
+            stringBuilder.append('"');
+            final int length = value.length();
+            for (int i = 0; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c == '"') {
+                    stringBuilder.append('"');
+                }
+                stringBuilder.append(c);
+            }
+            stringBuilder.append('"');
+        }
+
+        @Override
+        public int escapedLength(final CharSequence value) {
+            if (indexOfEscaped(value, 0) < 0) {
+                return value.length();
+            }
+
+            int escapedLength = value.length() + 2;
+            final int length = value.length();
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) == '"') {
+                    escapedLength++;
+                }
+            }
+            return escapedLength;
+        }
+
+        @Override
+        int indexOfEscaped(final CharSequence value, final int from) {
+            final int length = value.length();
+            for (int i = from; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    },
+
+    /**
+     * Values are escaped as TSV fields.
+     *
+     * <p>
+     * A tab, a line feed, a carriage return and a backslash are replaced with
+     * {@code \t}, {@code \n}, {@code \r} and {@code \\} respectively.
+     * </p>
+     */
+    TSV {
+        @Override
+        public void append(final StringBuilder stringBuilder, final CharSequence value) {
+            final int firstEscaped = indexOfEscaped(value, 0);
+            if (firstEscaped < 0) {
+                stringBuilder.append(value);
+                return;
+            }
+
+            stringBuilder.append(value, 0, firstEscaped);
+            final int length = value.length();
+            for (int i = firstEscaped; i < length; i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                    case '\t':
+                        stringBuilder.append("\\t");
+                        break;
+                    case '\n':
+                        stringBuilder.append("\\n");
+                        break;
+                    case '\r':
+                        stringBuilder.append("\\r");
+                        break;
+                    case '\\':
+                        stringBuilder.append("\\\\");
+                        break;
+                    default:
+                        stringBuilder.append(c);
+                }
+            }
+        }
+
+        @Override
+        public int escapedLength(final CharSequence value) {
+            final int firstEscaped = indexOfEscaped(value, 0);
+            if (firstEscaped < 0) {
+                return value.length();
+            }
+
+            int escapedLength = value.length();
+            final int length = value.length();
+            for (int i = firstEscaped; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c == '\t' || c == '\n' || c == '\r' || c == '\\') {
+                    escapedLength++;
+                }
+            }
+            return escapedLength;
+        }
+
+        @Override
+        int indexOfEscaped(final CharSequence value, final int from) {
+            final int length = value.length();
+            for (int i = from; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c == '\t' || c == '\n' || c == '\r' || c == '\\') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    },
+
+    /**
+     * Values are escaped as the contents of JSON strings.
+     *
+     * <p>
+     * A double quote, a backslash and control characters are escaped.
+     * The enclosing double quotes are not added; write them in the format as constants.
+     * </p>
+     */
+    JSON {
+        @Override
+        public void append(final StringBuilder stringBuilder, final CharSequence value) {
+            final int firstEscaped = indexOfEscaped(value, 0);
+            if (firstEscaped < 0) {
+                stringBuilder.append(value);
+                return;
+            }
+
+            stringBuilder.append(value, 0, firstEscaped);
+            final int length = value.length();
+            for (int i = firstEscaped; i < length; i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        stringBuilder.append("\\\"");
+                        break;
+                    case '\\':
+                        stringBuilder.append("\\\\");
+                        break;
+                    case '\b':
+                        stringBuilder.append("\\b");
+                        break;
+                    case '\f':
+                        stringBuilder.append("\\f");
+                        break;
+                    case '\n':
+                        stringBuilder.append("\\n");
+                        break;
+                    case '\r':
+                        stringBuilder.append("\\r");
+                        break;
+                    case '\t':
+                        stringBuilder.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            stringBuilder.append("\\u00")
+                                    .append(HEX_DIGITS[c >> 4])
+                                    .append(HEX_DIGITS[c & 0xF]);
+                        } else {
+                            stringBuilder.append(c);
+                        }
+                }
+            }
+        }
+
+        @Override
+        public int escapedLength(final CharSequence value) {
+            final int firstEscaped = indexOfEscaped(value, 0);
+            if (firstEscaped < 0) {
+                return value.length();
+            }
+
+            int escapedLength = value.length();
+            final int length = value.length();
+            for (int i = firstEscaped; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c == '"' || c == '\\' || c == '\b' || c == '\f' || c == '\n' || c == '\r' || c == '\t') {
+                    escapedLength += 1;
+                } else if (c < 0x20) {
+                    escapedLength += 5;
+                }
+            }
+            return escapedLength;
+        }
+
+        @Override
+        int indexOfEscaped(final CharSequence value, final int from) {
+            final int length = value.length();
+            for (int i = from; i < length; i++) {
+                final char c = value.charAt(i);
+                if (c == '"' || c == '\\' || c < 0x20) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    },
+    ;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Appends the escaped value to the string builder.
+     *
+     * @param stringBuilder the string buffer to which the escaped value is to be appended
+     * @param value the value to escape
+     */
+    public abstract void append(StringBuilder stringBuilder, CharSequence value);
+
+    /**
+     * Returns the length of the escaped value.
+     *
+     * @param value the value to escape
+     * @return the number of chars which {@link #append(StringBuilder, CharSequence)} appends
+     */
+    public abstract int escapedLength(CharSequence value);
+
+    /**
+     * Escapes the chars at the end of the string builder in place.
+     *
+     * @param stringBuilder the string buffer whose chars are to be escaped
+     * @param start the index of the first char to be escaped
+     */
+    void escapeInPlace(final StringBuilder stringBuilder, final int start) {
+        if (indexOfEscaped(stringBuilder, start) < 0) {
+            return;
+        }
+
+        final String value = stringBuilder.substring(start);
+        stringBuilder.setLength(start);
+        append(stringBuilder, value);
+    }
+
+    /**
+     * Returns the index of the first char which requires escaping.
+     *
+     * @param value the value to scan
+     * @param from the index to start scanning
+     * @return the index of the first char which requires escaping, or -1 if no escaping is required
+     */
+    abstract int indexOfEscaped(CharSequence value, int from);
+}
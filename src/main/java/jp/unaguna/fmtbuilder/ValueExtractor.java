@@ -0,0 +1,96 @@
+package jp.unaguna.fmtbuilder;
+
+/**
+ * This extracts values for formatting by {@link DataFormat} from data.
+ *
+ * <p>
+ * Unlike {@link ValueProviderAdapter}, an extractor holds no data,
+ * so one immutable extractor can be shared by all threads without any lock.
+ * Use it with {@link DataFormat#format(Object, ValueExtractor)}.
+ * </p>
+ *
+ * <pre>{@code
+ * final ValueExtractor<YourData> extractor = new ValueProviderAdapter.Builder<YourData>()
+ *         .addProvider("key1", (data) -> data.getValueForKey1() )
+ *         .buildExtractor();
+ * final String line = dataFormat.format(data, extractor);
+ * }</pre>
+ *
+ * @param <T> type of data
+ */
+@FunctionalInterface
+public interface ValueExtractor<T> {
+    /**
+     * Returns the value of the specified key in the data.
+     *
+     * @param element the data
+     * @param key the key for required value
+     * @return the value of the specified key
+     * @throws IllegalArgumentException no value exists for the specified key
+     */
+    Object get(T element, String key);
+
+    /**
+     * Returns the value of the specified key in the data, or {@link ValueProvider#MISSING} if no value exists.
+     *
+     * <p>
+     * The default implementation only calls {@link #get(Object, String)}, and never reports absence,
+     * so that an exception thrown by {@link #get(Object, String)} is not mistaken for absence of the key.
+     * The extractors built by {@link ValueProviderAdapter.Builder#buildExtractor()} return MISSING
+     * for the keys which have no provider.
+     * </p>
+     *
+     * @param element the data
+     * @param key the key for required value
+     * @return the value of the specified key, or {@link ValueProvider#MISSING} if no value exists
+     */
+    default Object find(T element, String key) {
+        return get(element, key);
+    }
+
+    /**
+     * Returns the ValueProvider which provides the values of the data.
+     *
+     * @param element the data
+     * @return the ValueProvider of the data
+     */
+    default ValueProvider bind(final T element) {
+        final ValueExtractor<T> extractor = this;
+        return new ValueProvider() {
+            @Override
+            public Object get(final String key) {
+                return extractor.get(element, key);
+            }
+
+            @Override
+            public Object find(final String key) {
+                return extractor.find(element, key);
+            }
+        };
+    }
+
+    /**
+     * Creates a new adapter which extracts the values by this extractor.
+     *
+     * <p>
+     * It can be used with the APIs taking an adapter, such as {@link TableDataFormatIterator}.
+     * The created adapter is not shared; create one for each use.
+     * </p>
+     *
+     * @return the new adapter
+     */
+    default ValueProviderAdapter<T> newAdapter() {
+        final ValueExtractor<T> extractor = this;
+        return new ValueProviderAdapter<T>() {
+            @Override
+            public Object get(final String key) {
+                return extractor.get(element, key);
+            }
+
+            @Override
+            public Object find(final String key) {
+                return extractor.find(element, key);
+            }
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+class ValueExtractorConcrete<T> implements ValueExtractor<T> {
+    private final Map<String, Function<T, Object>> providers;
+
+    ValueExtractorConcrete(final Map<String, Function<T, Object>> providers) {
+        // copy so that later changes to the builder do not affect this extractor
+        this.providers = new HashMap<>(providers);
+    }
+
+    @Override
+    public Object get(final T element, final String key) {
+        final Object value = find(element, key);
+        if (value == ValueProvider.MISSING) {
+            throw new IllegalArgumentException(key);
+        }
+        return value;
+    }
+
+    @Override
+    public Object find(final T element, final String key) {
+        final Function<T, Object> provider = providers.get(key);
+        if (provider == null) {
+            return ValueProvider.MISSING;
+        }
+
+        return provider.apply(element);
+    }
+}
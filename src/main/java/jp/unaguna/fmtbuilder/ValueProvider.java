@@ -6,6 +6,16 @@ import java.util.Map;
  * This provides values for formatting by {@link DataFormat}.
  */
 public interface ValueProvider {
+    /**
+     * The sentinel returned by {@link #find(String)} when no value exists for the key.
+     */
+    Object MISSING = new Object() {
+        @Override
+        public String toString() {
+            return "MISSING";
+        }
+    };
+
     /**
      * Returns the value of the specified key.
      *
@@ -15,6 +25,25 @@ public interface ValueProvider {
      */
     Object get(String key);
 
+    /**
+     * Returns the value of the specified key, or {@link #MISSING} if no value exists.
+     *
+     * <p>
+     * Unlike {@link #get(String)}, it reports absence without throwing any exception.
+     * The default implementation only calls {@link #get(String)}, and never reports absence,
+     * because an exception thrown by {@link #get(String)} may be an error of the implementation
+     * rather than absence of the key.
+     * Implementations which know the existing keys, such as {@link ValueProviderMap}, override it
+     * to return MISSING for the keys which do not exist.
+     * </p>
+     *
+     * @param key the key for required value
+     * @return the value of the specified key, or {@link #MISSING} if no value exists
+     */
+    default Object find(String key) {
+        return get(key);
+    }
+
     static ValueProviderMap fromMap(final Map<String, Object> m) {
         return new ValueProviderMapImpl(m);
     }
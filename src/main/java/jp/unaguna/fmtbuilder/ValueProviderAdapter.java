@@ -28,6 +28,11 @@ import java.util.function.Function;
  * execute {@link #setElement(Object)} again to change the data the adapter holds and then use it.
  * </p>
  *
+ * <p>
+ * If the adapter is to be shared by threads, consider {@link ValueExtractor} instead,
+ * which holds no data and needs no lock.
+ * </p>
+ *
  * @param <T> type of inner instance
  */
 public abstract class ValueProviderAdapter<T> implements ValueProvider {
@@ -37,11 +42,35 @@ public abstract class ValueProviderAdapter<T> implements ValueProvider {
         this.element = element;
     }
 
+    /**
+     * Creates an adapter whose keys are the properties of the class.
+     *
+     * <p>
+     * The properties are discovered from the public getters such as {@code getName()} and {@code isActive()},
+     * whose keys are "name" and "active", and from the public accessors named after the fields,
+     * such as {@code name()} of records.
+     * The accessors are bound to lambdas once per class, so retrieving values costs the same as
+     * the adapters built with hand-written lambdas.
+     * </p>
+     *
+     * @param type the class of the data
+     * @param <T> the class of the data
+     * @return the new adapter
+     */
+    public static <T> ValueProviderAdapter<T> forClass(final Class<T> type) {
+        return new ValueProviderAdapterConcrete<>(ClassAccessors.of(Objects.requireNonNull(type)));
+    }
+
     public static class AsIs<T extends ValueProvider> extends ValueProviderAdapter<T> {
         @Override
         public Object get(String key) {
             return element.get(key);
         }
+
+        @Override
+        public Object find(String key) {
+            return element.find(key);
+        }
     }
 
     public static class Builder<T> {
@@ -62,5 +91,18 @@ public abstract class ValueProviderAdapter<T> implements ValueProvider {
         public ValueProviderAdapter<T> build() {
             return new ValueProviderAdapterConcrete<>(this.providers);
         }
+
+        /**
+         * Creates a stateless extractor with the added providers.
+         *
+         * <p>
+         * Unlike the adapter created by {@link #build()}, the extractor can be shared by threads without any lock.
+         * </p>
+         *
+         * @return the extractor
+         */
+        public ValueExtractor<T> buildExtractor() {
+            return new ValueExtractorConcrete<>(this.providers);
+        }
     }
 }
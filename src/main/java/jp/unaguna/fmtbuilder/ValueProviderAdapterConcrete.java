@@ -13,6 +13,15 @@ class ValueProviderAdapterConcrete<T> extends ValueProviderAdapter<T> {
 
     @Override
     public Object get(final String key) {
+        final Object value = find(key);
+        if (value == MISSING) {
+            throw new IllegalArgumentException(key);
+        }
+        return value;
+    }
+
+    @Override
+    public Object find(final String key) {
         final T element = this.element;
         if (element == null) {
             throw new IllegalStateException("This adapter contains no element.");
@@ -20,7 +29,7 @@ class ValueProviderAdapterConcrete<T> extends ValueProviderAdapter<T> {
 
         final Function<T, Object> provider = providers.get(key);
         if (provider == null) {
-            throw new IllegalArgumentException(key);
+            return MISSING;
         }
 
         return provider.apply(element);
@@ -45,6 +45,15 @@ class ValueProviderMapImpl implements ValueProviderMap {
         }
     }
 
+    @Override
+    public Object find(final String key) {
+        final Object value = impl.get(key);
+        if (value == null && !impl.containsKey(key)) {
+            return MISSING;
+        }
+        return value;
+    }
+
     @Override
     public Object put(final String key, final Object value) {
         return impl.put(key, value);
@@ -0,0 +1,23 @@
+package jp.unaguna.fmtbuilder;
+
+/**
+ * This renders values of a specific type as text, used instead of {@link Object#toString()}.
+ *
+ * <p>
+ * Renderers are registered into {@link ValueRendererRegistry} and attached to a format by
+ * {@link DataFormat.Builder#renderers(ValueRendererRegistry)}.
+ * Implementations should append the text directly to the string builder without creating intermediate Strings.
+ * </p>
+ *
+ * @param <V> type of values to render
+ */
+@FunctionalInterface
+public interface ValueRenderer<V> {
+    /**
+     * Appends the text of the value to the string builder.
+     *
+     * @param value the value to render; never null
+     * @param stringBuilder the string buffer to which the text is to be appended
+     */
+    void render(V value, StringBuilder stringBuilder);
+}
@@ -0,0 +1,94 @@
+package jp.unaguna.fmtbuilder;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of {@link ValueRenderer} for each type.
+ *
+ * <p>
+ * The renderer for a value is looked up by the class of the value.
+ * If no renderer is registered for the class itself,
+ * the renderer registered for the nearest superclass, or else for an interface of the class, is used.
+ * The result of the lookup is cached for each class.
+ * Values of types without any renderer are rendered by {@link Object#toString()}.
+ * </p>
+ *
+ * <pre>{@code
+ * final ValueRendererRegistry renderers = ValueRendererRegistry.withDefaults()
+ *         .register(Instant.class, ValueRenderers.instant(secondsFormatter, 3));
+ * final DataFormat dataFormat = new DataFormat.Builder()
+ *         .string("time")
+ *         .renderers(renderers)
+ *         .build();
+ * }</pre>
+ */
+public class ValueRendererRegistry {
+    private static final Object NOT_FOUND = new Object();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Class<Enum<?>> ENUM_CLASS = (Class) Enum.class;
+
+    private final Map<Class<?>, ValueRenderer<?>> renderers = new HashMap<>();
+    private final Map<Class<?>, Object> resolvedRenderers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a new registry containing the renderers for common types:
+     * {@link ValueRenderers#enums()} for enums, {@link ValueRenderers#integers()} for Integer, Long, Short and Byte,
+     * and {@link ValueRenderers#bigDecimals()} for BigDecimal.
+     *
+     * @return the new registry
+     */
+    public static ValueRendererRegistry withDefaults() {
+        return new ValueRendererRegistry()
+                .register(ENUM_CLASS, ValueRenderers.enums())
+                .register(Integer.class, ValueRenderers.integers())
+                .register(Long.class, ValueRenderers.integers())
+                .register(Short.class, ValueRenderers.integers())
+                .register(Byte.class, ValueRenderers.integers())
+                .register(BigDecimal.class, ValueRenderers.bigDecimals());
+    }
+
+    /**
+     * Registers the renderer for the type.
+     *
+     * @param type the type of values rendered by the renderer
+     * @param renderer the renderer
+     * @param <V> the type of values rendered by the renderer
+     * @return this registry
+     */
+    public synchronized <V> ValueRendererRegistry register(
+            final Class<V> type, final ValueRenderer<? super V> renderer) {
+        renderers.put(Objects.requireNonNull(type), Objects.requireNonNull(renderer));
+        resolvedRenderers.clear();
+        return this;
+    }
+
+    /**
+     * Returns the renderer for the class.
+     *
+     * @param cls the class of the value
+     * @return the renderer, or null if no renderer is registered for the class and its supertypes
+     */
+    @SuppressWarnings("unchecked")
+    ValueRenderer<Object> rendererFor(final Class<?> cls) {
+        Object renderer = resolvedRenderers.get(cls);
+        if (renderer == null) {
+            renderer = resolveAndCache(cls);
+        }
+        return renderer != NOT_FOUND ? (ValueRenderer<Object>) renderer : null;
+    }
+
+    private synchronized Object resolveAndCache(final Class<?> cls) {
+        final Object renderer = resolve(cls);
+        resolvedRenderers.put(cls, renderer);
+        return renderer;
+    }
+
+    private Object resolve(final Class<?> cls) {
+        final ValueRenderer<?> renderer = ClassHierarchyLookup.find(renderers, cls);
+        return renderer != null ? renderer : NOT_FOUND;
+    }
+}
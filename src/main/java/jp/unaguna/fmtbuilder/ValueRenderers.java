@@ -0,0 +1,211 @@
+package jp.unaguna.fmtbuilder;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Objects;
+
+/**
+ * Factory methods of {@link ValueRenderer} for common types.
+ */
+public final class ValueRenderers {
+    private static final int SMALL_INTEGER_MIN = -128;
+    private static final int SMALL_INTEGER_MAX = 1023;
+    private static final String[] SMALL_INTEGERS = new String[SMALL_INTEGER_MAX - SMALL_INTEGER_MIN + 1];
+    private static final long[] POWERS_OF_TEN = new long[10];
+
+    static {
+        for (int i = 0; i < SMALL_INTEGERS.length; i++) {
+            SMALL_INTEGERS[i] = Integer.toString(i + SMALL_INTEGER_MIN);
+        }
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private static final ClassValue<String[]> ENUM_TEXTS = new ClassValue<String[]>() {
+        @Override
+        protected String[] computeValue(final Class<?> type) {
+            final Object[] constants = type.getEnumConstants();
+            final String[] texts = new String[constants.length];
+            for (int i = 0; i < constants.length; i++) {
+                texts[i] = constants[i].toString();
+            }
+            return texts;
+        }
+    };
+
+    private ValueRenderers() {
+    }
+
+    /**
+     * Returns the renderer of enums.
+     *
+     * <p>
+     * It renders the same text as {@link Enum#toString()},
+     * which is computed only once for each constant and cached.
+     * </p>
+     *
+     * @return the renderer
+     */
+    public static ValueRenderer<Enum<?>> enums() {
+        return (value, stringBuilder) ->
+                stringBuilder.append(ENUM_TEXTS.get(value.getDeclaringClass())[value.ordinal()]);
+    }
+
+    /**
+     * Returns the renderer of integral numbers such as Integer and Long.
+     *
+     * <p>
+     * Small integers are rendered from a precomputed table,
+     * and the others are appended as digits without creating Strings.
+     * </p>
+     *
+     * @return the renderer
+     */
+    public static ValueRenderer<Number> integers() {
+        return (value, stringBuilder) -> appendLong(stringBuilder, value.longValue());
+    }
+
+    /**
+     * Returns the renderer of BigDecimal.
+     *
+     * <p>
+     * It renders the same text as {@link BigDecimal#toPlainString()}.
+     * A value of up to 18 digits is appended as digits without creating Strings.
+     * An integral value of them is rendered without any allocation, but a value with a fraction
+     * still allocates a BigInteger to obtain its unscaled value, since BigDecimal has no other public means.
+     * </p>
+     *
+     * @return the renderer
+     */
+    public static ValueRenderer<BigDecimal> bigDecimals() {
+        return (value, stringBuilder) -> {
+            final int scale = value.scale();
+            if (scale < 0 || value.precision() > 18) {
+                stringBuilder.append(value.toPlainString());
+                return;
+            }
+
+            // longValue() of an integral BigDecimal returns the compact value without allocation
+            final long unscaled = scale == 0 ? value.longValue() : value.unscaledValue().longValue();
+            if (unscaled < 0) {
+                stringBuilder.append('-');
+            }
+            final int digitsStart = stringBuilder.length();
+            appendLong(stringBuilder, Math.abs(unscaled));
+            if (scale == 0) {
+                return;
+            }
+
+            final int digitsLength = stringBuilder.length() - digitsStart;
+            if (digitsLength > scale) {
+                stringBuilder.insert(stringBuilder.length() - scale, '.');
+            } else {
+                // e.g. 0.0012
+                StringBuilders.insertRepeated(stringBuilder, digitsStart, '0', scale - digitsLength + 1);
+                stringBuilder.insert(digitsStart + 1, '.');
+            }
+        };
+    }
+
+    /**
+     * Returns the renderer of Instant.
+     *
+     * <p>
+     * The part down to seconds is formatted by the formatter and cached while the second does not change,
+     * so that consecutive timestamps are rendered cheaply.
+     * The fraction of the second follows with the specified number of digits.
+     * </p>
+     *
+     * @param secondsFormatter the formatter of the part down to seconds, such as "yyyy-MM-dd HH:mm:ss";
+     *                         if it has no zone, UTC is used
+     * @param fractionDigits the number of digits of the fraction of the second, from 0 to 9;
+     *                       if it is 0, neither the fraction nor the decimal point is rendered
+     * @return the renderer
+     */
+    public static ValueRenderer<Instant> instant(final DateTimeFormatter secondsFormatter, final int fractionDigits) {
+        final DateTimeFormatter formatter = secondsFormatter.getZone() != null
+                ? secondsFormatter
+                : secondsFormatter.withZone(ZoneOffset.UTC);
+        final SecondsCache<Instant> cache = new SecondsCache<>(formatter, fractionDigits);
+        return (value, stringBuilder) -> cache.render(value, value.getEpochSecond(), value.getNano(), stringBuilder);
+    }
+
+    /**
+     * Returns the renderer of LocalDateTime.
+     *
+     * <p>
+     * The part down to seconds is formatted by the formatter and cached while the second does not change,
+     * so that consecutive timestamps are rendered cheaply.
+     * The fraction of the second follows with the specified number of digits.
+     * </p>
+     *
+     * @param secondsFormatter the formatter of the part down to seconds, such as "yyyy-MM-dd HH:mm:ss"
+     * @param fractionDigits the number of digits of the fraction of the second, from 0 to 9;
+     *                       if it is 0, neither the fraction nor the decimal point is rendered
+     * @return the renderer
+     */
+    public static ValueRenderer<LocalDateTime> localDateTime(
+            final DateTimeFormatter secondsFormatter, final int fractionDigits) {
+        final SecondsCache<LocalDateTime> cache = new SecondsCache<>(secondsFormatter, fractionDigits);
+        return (value, stringBuilder) ->
+                cache.render(value, value.toEpochSecond(ZoneOffset.UTC), value.getNano(), stringBuilder);
+    }
+
+    private static void appendLong(final StringBuilder stringBuilder, final long value) {
+        if (SMALL_INTEGER_MIN <= value && value <= SMALL_INTEGER_MAX) {
+            stringBuilder.append(SMALL_INTEGERS[(int) value - SMALL_INTEGER_MIN]);
+        } else {
+            stringBuilder.append(value);
+        }
+    }
+
+    /**
+     * The cache of the formatted text of the latest second.
+     */
+    private static class SecondsCache<T extends TemporalAccessor> {
+        private final DateTimeFormatter formatter;
+        private final int fractionDigits;
+        private volatile Entry latest = new Entry(Long.MIN_VALUE, null);
+
+        SecondsCache(final DateTimeFormatter formatter, final int fractionDigits) {
+            if (fractionDigits < 0 || 9 < fractionDigits) {
+                throw new IllegalArgumentException("fractionDigits must be from 0 to 9");
+            }
+            this.formatter = Objects.requireNonNull(formatter);
+            this.fractionDigits = fractionDigits;
+        }
+
+        void render(final T value, final long epochSecond, final int nano, final StringBuilder stringBuilder) {
+            Entry entry = latest;
+            if (entry.epochSecond != epochSecond) {
+                entry = new Entry(epochSecond, formatter.format(value));
+                latest = entry;
+            }
+            stringBuilder.append(entry.text);
+
+            if (fractionDigits > 0) {
+                stringBuilder.append('.');
+                final long fraction = nano / POWERS_OF_TEN[9 - fractionDigits];
+                for (int i = fractionDigits - 1; i >= 0; i--) {
+                    stringBuilder.append((char) ('0' + fraction / POWERS_OF_TEN[i] % 10));
+                }
+            }
+        }
+
+        private static class Entry {
+            final long epochSecond;
+            final String text;
+
+            Entry(final long epochSecond, final String text) {
+                this.epochSecond = epochSecond;
+                this.text = text;
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package jp.unaguna.fmtbuilder;
+
+/**
+ * Appends repeated chars, for Java 21 or later.
+ *
+ * <p>
+ * This class replaces the implementation in src/main/java in the multi-release JAR,
+ * using {@link StringBuilder#repeat(int, int)}, which fills the buffer at once.
+ * </p>
+ */
+final class RepeatedChars {
+    private RepeatedChars() {
+    }
+
+    /**
+     * Appends the char repeatedly.
+     *
+     * @param stringBuilder the string buffer to which the chars are to be appended
+     * @param c the char to append
+     * @param count the number of chars to append; must be positive
+     */
+    static void append(final StringBuilder stringBuilder, final char c, final int count) {
+        stringBuilder.repeat(c, count);
+    }
+}
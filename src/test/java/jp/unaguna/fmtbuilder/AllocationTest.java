@@ -0,0 +1,206 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests that the steady-state formatting does not allocate more than the recorded budget.
+ *
+ * <p>
+ * The allocated bytes are measured by {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)},
+ * so the tests are skipped on JVMs which do not support it.
+ * If a change makes the allocation exceed the budget, reconsider the change before raising the budget.
+ * </p>
+ *
+ * <p>
+ * The paths which allocate nothing in the code still have a small budget,
+ * because short-lived objects such as iterators are removed only by the escape analysis of the JIT compiler,
+ * which depends on the JVM and its options (e.g. {@code -XX:TieredStopAtLevel=1} or a coverage agent).
+ * The budget is much smaller than the size of the formatted String, so it still detects a regression
+ * that creates a String or a buffer for each call.
+ * </p>
+ */
+public class AllocationTest {
+    private static final int WARMUP_CALLS = 50_000;
+    private static final int MEASURED_CALLS = 100_000;
+
+    /** budget of SimpleDataFormat.format(..., StringBuilder) */
+    private static final long FORMAT_BUDGET_BYTES_PER_CALL = 16;
+    /** budget of the lookup of ValueProviderAdapter */
+    private static final long ADAPTER_BUDGET_BYTES_PER_CALL = 16;
+    /** budget of TableDataFormatIterator.nextFormat, including the width pass of each block */
+    private static final long TABLE_BUDGET_BYTES_PER_CALL = 24;
+    /** budget of ValueRenderers.bigDecimals() with integral values */
+    private static final long BIG_DECIMAL_BUDGET_BYTES_PER_CALL = 16;
+    /** budget of SimpleDataFormat.format(..., StringBuilder) with BinaryRowValueProvider */
+    private static final long BINARY_ROW_BUDGET_BYTES_PER_CALL = 16;
+
+    @Test
+    public void testFormat() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("value1=")
+                .string("key1", ValuePadding.LEFT)
+                .constant(", value2=")
+                .string("key2", ValuePadding.RIGHT)
+                .constant(", value3=")
+                .string("key3")
+                .build();
+        final ValueProvider valueProvider = key -> "value";
+        final FieldWidthProvider fieldWidthProvider = fieldName -> 10;
+        final StringBuilder stringBuilder = new StringBuilder(256);
+
+        final double bytesPerCall = measureBytesPerCall(() -> {
+            stringBuilder.setLength(0);
+            dataFormat.format(valueProvider, fieldWidthProvider, stringBuilder);
+        });
+
+        assertEquals("value1=     value, value2=value     , value3=value", stringBuilder.toString());
+        assertWithinBudget(FORMAT_BUDGET_BYTES_PER_CALL, bytesPerCall);
+    }
+
+    @Test
+    public void testAdapter() {
+        final ValueProviderAdapter<String[]> adapter = new ValueProviderAdapter.Builder<String[]>()
+                .addProvider("key1", d -> d[0])
+                .addProvider("key2", d -> d[1])
+                .build();
+        final String[] element = {"value1", "value2"};
+        final Object[] result = new Object[2];
+
+        final double bytesPerCall = measureBytesPerCall(() -> {
+            adapter.setElement(element);
+            result[0] = adapter.get("key1");
+            result[1] = adapter.get("key2");
+        });
+
+        assertEquals("value2", result[1]);
+        assertWithinBudget(ADAPTER_BUDGET_BYTES_PER_CALL, bytesPerCall);
+    }
+
+    @Test
+    public void testTableNextFormat() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .constant(" ")
+                .string("key2", ValuePadding.RIGHT)
+                .build();
+        final ValueProviderAdapter<String[]> adapter = new ValueProviderAdapter.Builder<String[]>()
+                .addProvider("key1", d -> d[0])
+                .addProvider("key2", d -> d[1])
+                .build();
+
+        final List<String[]> data = new ArrayList<>();
+        data.add(new String[]{"a", "bbb"});
+        data.add(new String[]{"aaa", "b"});
+        final Iterator<String[]> endlessData = new Iterator<String[]>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public String[] next() {
+                index = (index + 1) % data.size();
+                return data.get(index);
+            }
+        };
+
+        final TableDataFormatIterator<String[]> tableDataFormatIterator
+                = new TableDataFormatIterator<>(dataFormat, endlessData, adapter);
+        tableDataFormatIterator.setBlockSize(100);
+        final StringBuilder stringBuilder = new StringBuilder(256);
+
+        final double bytesPerCall = measureBytesPerCall(() -> {
+            stringBuilder.setLength(0);
+            tableDataFormatIterator.nextFormat(stringBuilder);
+        });
+
+        assertEquals(7, stringBuilder.length());
+        assertWithinBudget(TABLE_BUDGET_BYTES_PER_CALL, bytesPerCall);
+    }
+
+    @Test
+    public void testBinaryRow() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("id", ValuePadding.LEFT)
+                .constant(" ")
+                .string("name", ValuePadding.RIGHT)
+                .constant(" ")
+                .string("count")
+                .build();
+        final BinaryRowSchema schema = new BinaryRowSchema.Builder()
+                .int64("id", 0)
+                .ascii("name", 8, 8)
+                .int32("count", 16)
+                .build();
+        final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocateDirect(schema.getRowSize() * 2);
+        buffer.putLong(0, -12345L).put(8, (byte) 'a').put(9, (byte) 'b').putInt(16, 7);
+        buffer.putLong(20, 678L).put(28, (byte) 'c').putInt(36, -90);
+        final BinaryRowValueProvider row = schema.newProvider(buffer);
+        final FieldWidthProvider fieldWidthProvider = fieldName -> 8;
+        final StringBuilder stringBuilder = new StringBuilder(256);
+        final int[] index = {0};
+
+        final double bytesPerCall = measureBytesPerCall(() -> {
+            stringBuilder.setLength(0);
+            index[0] ^= 1;
+            dataFormat.format(row.moveToRow(index[0]), fieldWidthProvider, stringBuilder);
+        });
+
+        assertEquals("  -12345 ab       7", stringBuilder.toString());
+        assertWithinBudget(BINARY_ROW_BUDGET_BYTES_PER_CALL, bytesPerCall);
+    }
+
+    @Test
+    public void testBigDecimalIntegral() {
+        final ValueRenderer<java.math.BigDecimal> renderer = ValueRenderers.bigDecimals();
+        final java.math.BigDecimal value = new java.math.BigDecimal("-1234567890123");
+        final StringBuilder stringBuilder = new StringBuilder(64);
+
+        final double bytesPerCall = measureBytesPerCall(() -> {
+            stringBuilder.setLength(0);
+            renderer.render(value, stringBuilder);
+        });
+
+        assertEquals("-1234567890123", stringBuilder.toString());
+        assertWithinBudget(BIG_DECIMAL_BUDGET_BYTES_PER_CALL, bytesPerCall);
+    }
+
+    private static double measureBytesPerCall(final Runnable call) {
+        final java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean,
+                "com.sun.management.ThreadMXBean is not available");
+        final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(sunThreadMXBean.isThreadAllocatedMemorySupported(),
+                "the measurement of allocated memory is not supported");
+        sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            call.run();
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = sunThreadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_CALLS; i++) {
+            call.run();
+        }
+        final long after = sunThreadMXBean.getThreadAllocatedBytes(threadId);
+
+        return (double) (after - before) / MEASURED_CALLS;
+    }
+
+    private static void assertWithinBudget(final long budgetBytesPerCall, final double bytesPerCall) {
+        // allow less than one byte per call for the allocation of the measurement itself
+        assertTrue(bytesPerCall < budgetBytesPerCall + 1,
+                "allocated " + bytesPerCall + " bytes per call, but the budget is " + budgetBytesPerCall);
+    }
+}
@@ -0,0 +1,138 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryRowValueProviderTest {
+    private static final BinaryRowSchema SCHEMA = new BinaryRowSchema.Builder()
+            .int8("i8", 0)
+            .int16("i16", 1)
+            .int32("i32", 3)
+            .int64("i64", 7)
+            .float32("f32", 15)
+            .float64("f64", 19)
+            .ascii("name", 27, 6)
+            .rowSize(40)
+            .build();
+
+    @Test
+    public void testSchema() {
+        assertEquals(40, SCHEMA.getRowSize());
+        assertEquals(Arrays.asList("i8", "i16", "i32", "i64", "f32", "f64", "name"), SCHEMA.getFieldNames());
+
+        final BinaryRowSchema schema = new BinaryRowSchema.Builder()
+                .int32("a", 4)
+                .ascii("b", 8, 3)
+                .build();
+        assertEquals(11, schema.getRowSize());
+    }
+
+    @Test
+    public void testSchemaError() {
+        final BinaryRowSchema.Builder builder = new BinaryRowSchema.Builder().int32("a", 0);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.int32("a", 4));
+        assertThrows(IllegalArgumentException.class, () -> builder.int32("b", -1));
+        assertThrows(IllegalArgumentException.class, () -> builder.ascii("c", 4, 0));
+        assertThrows(IllegalStateException.class, () -> builder.rowSize(2).build());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"BIG_ENDIAN", "LITTLE_ENDIAN"})
+    public void testReadFields(final String byteOrder) {
+        final ByteBuffer buffer = ByteBuffer.allocate(SCHEMA.getRowSize() * 2)
+                .order("BIG_ENDIAN".equals(byteOrder) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        writeRow(buffer, 0, (byte) -8, (short) 1600, 320000, Long.MIN_VALUE, 1.5f, -0.25, "host01");
+        writeRow(buffer, 40, (byte) 127, (short) -1, 0, Long.MAX_VALUE, 0f, 1e10, "db");
+
+        final BinaryRowValueProvider row = SCHEMA.newProvider(buffer);
+        assertEquals(2, row.getRowCount());
+
+        assertEquals("-8", row.get("i8").toString());
+        assertEquals("1600", row.get("i16").toString());
+        assertEquals("320000", row.get("i32").toString());
+        assertEquals(String.valueOf(Long.MIN_VALUE), row.get("i64").toString());
+        assertEquals("1.5", row.get("f32").toString());
+        assertEquals("-0.25", row.get("f64").toString());
+        assertEquals("host01", row.get("name").toString());
+
+        row.moveToRow(1);
+        assertEquals(40, row.getRowOffset());
+        assertEquals("127", row.get("i8").toString());
+        assertEquals("-1", row.get("i16").toString());
+        assertEquals("0", row.get("i32").toString());
+        assertEquals(String.valueOf(Long.MAX_VALUE), row.get("i64").toString());
+        assertEquals("0.0", row.get("f32").toString());
+        assertEquals("1.0E10", row.get("f64").toString());
+        assertEquals("db", row.get("name").toString());
+    }
+
+    @Test
+    public void testFormat() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("name", ValuePadding.RIGHT)
+                .constant("|")
+                .string("i32", ValuePadding.LEFT)
+                .constant("|")
+                .string("f64")
+                .build();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(SCHEMA.getRowSize() * 2);
+        writeRow(buffer, 0, (byte) 0, (short) 0, -42, 0L, 0f, 2.5, "web");
+        writeRow(buffer, 40, (byte) 0, (short) 0, 1234, 0L, 0f, 0.5, "worker");
+
+        final BinaryRowValueProvider row = SCHEMA.newProvider(buffer);
+        final FieldWidthProvider fieldWidthProvider = key -> 6;
+        assertEquals("web   |   -42|2.5", dataFormat.format(row.moveToRow(0), fieldWidthProvider));
+        assertEquals("worker|  1234|0.5", dataFormat.format(row.moveToRow(1), fieldWidthProvider));
+    }
+
+    @Test
+    public void testMissingAndBounds() {
+        final BinaryRowValueProvider row = SCHEMA.newProvider(ByteBuffer.allocate(SCHEMA.getRowSize()));
+
+        assertSame(ValueProvider.MISSING, row.find("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> row.get("unknown"));
+        assertThrows(IndexOutOfBoundsException.class, () -> row.moveToRow(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> row.moveToOffset(-1));
+
+        // the string of the zero-filled field is empty
+        assertEquals("", row.get("name").toString());
+    }
+
+    @Test
+    public void testSetBuffer() {
+        final BinaryRowValueProvider row = SCHEMA.newProvider(ByteBuffer.allocate(SCHEMA.getRowSize() * 2));
+        row.moveToRow(1);
+
+        final ByteBuffer other = ByteBuffer.allocate(SCHEMA.getRowSize());
+        writeRow(other, 0, (byte) 1, (short) 2, 3, 4L, 0f, 0.0, "x");
+        row.setBuffer(other);
+
+        assertEquals(0, row.getRowOffset());
+        assertEquals("3", row.get("i32").toString());
+        assertEquals("x", row.get("name").toString());
+    }
+
+    private static void writeRow(
+            final ByteBuffer buffer, final int offset,
+            final byte i8, final short i16, final int i32, final long i64,
+            final float f32, final double f64, final String name) {
+
+        buffer.put(offset, i8)
+                .putShort(offset + 1, i16)
+                .putInt(offset + 3, i32)
+                .putLong(offset + 7, i64)
+                .putFloat(offset + 15, f32)
+                .putDouble(offset + 19, f64);
+        for (int i = 0; i < name.length(); i++) {
+            buffer.put(offset + 27 + i, (byte) name.charAt(i));
+        }
+    }
+}
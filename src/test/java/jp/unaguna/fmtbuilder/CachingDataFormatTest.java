@@ -0,0 +1,171 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingFormatArgumentException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingDataFormatTest {
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .constant("status=")
+            .string("status", ValuePadding.RIGHT)
+            .constant(" host=")
+            .string("host")
+            .constant(" status=")
+            .string("status")
+            .build();
+
+    @Test
+    public void testFormat__cache_hit() {
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 10);
+        final int[] calls = new int[1];
+        final ValueProvider ok = key -> {
+            calls[0]++;
+            return key.equals("status") ? "OK" : "web1";
+        };
+
+        assertEquals("status=OK host=web1 status=OK", dataFormat.format(ok));
+        assertEquals("head:status=OK host=web1 status=OK",
+                dataFormat.format(ok, new StringBuilder("head:")).toString());
+        assertEquals(1, dataFormat.getHitCount());
+        assertEquals(1, dataFormat.getMissCount());
+        assertEquals(0.5, dataFormat.getHitRate());
+        assertEquals(1, dataFormat.size());
+        // each variable is retrieved once per formatting
+        assertEquals(4, calls[0]);
+
+        assertEquals("status=NG host=web1 status=NG", dataFormat.format(key -> key.equals("status") ? "NG" : "web1"));
+        assertEquals(2, dataFormat.getMissCount());
+        assertEquals(2, dataFormat.size());
+    }
+
+    @Test
+    public void testFormat__widths_are_part_of_key() {
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 10);
+        final ValueProvider ok = key -> key.equals("status") ? "OK" : "web1";
+
+        assertEquals("status=OK host=web1 status=OK", dataFormat.format(ok));
+        assertEquals("status=OK   host=web1 status=OK", dataFormat.format(ok, key -> 4));
+        assertEquals("status=OK   host=web1 status=OK", dataFormat.format(ok, key -> 4));
+        assertEquals(1, dataFormat.getHitCount());
+        assertEquals(2, dataFormat.getMissCount());
+    }
+
+    @Test
+    public void testFormat__eviction() {
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 2);
+
+        dataFormat.format(key -> "a");
+        dataFormat.format(key -> "b");
+        dataFormat.format(key -> "a");
+        // "b" is the least recently used
+        dataFormat.format(key -> "c");
+        assertEquals(2, dataFormat.size());
+
+        dataFormat.format(key -> "a");
+        assertEquals(2, dataFormat.getHitCount());
+        dataFormat.format(key -> "b");
+        assertEquals(2, dataFormat.getHitCount());
+        assertEquals(4, dataFormat.getMissCount());
+
+        dataFormat.clear();
+        assertEquals(0, dataFormat.size());
+        assertEquals(0, dataFormat.getHitCount());
+        assertEquals(0.0, dataFormat.getHitRate());
+    }
+
+    @Test
+    public void testFormat__key_function() {
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 10, vp -> vp.get("status"));
+
+        assertEquals("status=OK host=web1 status=OK", dataFormat.format(key -> key.equals("status") ? "OK" : "web1"));
+        // the host is not a part of the key
+        assertEquals("status=OK host=web1 status=OK", dataFormat.format(key -> key.equals("status") ? "OK" : "web2"));
+        assertEquals(1, dataFormat.getHitCount());
+    }
+
+    @Test
+    public void testFormat__missing_value() {
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 10);
+        final Map<String, Object> values = new HashMap<>();
+        values.put("status", "OK");
+
+        assertThrows(DataFormattingException.class, () -> dataFormat.format(ValueProvider.fromMap(values)));
+        assertEquals(0, dataFormat.size());
+    }
+
+    @Test
+    public void testFormat__error_of_provider() {
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 10);
+        final IllegalStateException error = new IllegalStateException("error");
+
+        final DataFormattingException exception = assertThrows(DataFormattingException.class,
+                () -> dataFormat.format(key -> {
+                    throw error;
+                }));
+        assertSame(error, exception.getCause());
+
+        final DataFormattingException missingException = assertThrows(DataFormattingException.class,
+                () -> dataFormat.format(key -> {
+                    throw new IllegalArgumentException(key);
+                }));
+        assertInstanceOf(MissingFormatArgumentException.class, missingException.getCause());
+        assertEquals(0, dataFormat.size());
+    }
+
+    @Test
+    public void testFormat__error_of_key_function() {
+        final IllegalStateException error = new IllegalStateException("error");
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 10, valueProvider -> {
+            throw error;
+        });
+
+        final DataFormattingException exception = assertThrows(DataFormattingException.class,
+                () -> dataFormat.format(key -> "x"));
+        assertSame(error, exception.getCause());
+    }
+
+    @Test
+    public void testFormat__concurrent() throws Exception {
+        final CachingDataFormat dataFormat = new CachingDataFormat(DATA_FORMAT, 8);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        final String status = String.valueOf(i % 16);
+                        final String actual = dataFormat.format(key -> key.equals("status") ? status : "web");
+                        if (!actual.equals("status=" + status + " host=web status=" + status)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(40_000, dataFormat.getHitCount() + dataFormat.getMissCount());
+        assertTrue(dataFormat.size() <= 8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    public void testConstructor__error_with_non_positive(int maxSize) {
+        assertThrows(IllegalArgumentException.class, () -> new CachingDataFormat(DATA_FORMAT, maxSize));
+    }
+}
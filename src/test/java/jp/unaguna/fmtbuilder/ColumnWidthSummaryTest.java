@@ -0,0 +1,142 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnWidthSummaryTest {
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .string("key1", ValuePadding.LEFT)
+            .constant("|")
+            .string("key2", ValuePadding.RIGHT)
+            .build();
+
+    private static ValueProviderAdapter<String[]> newAdapter() {
+        return new ValueProviderAdapter.Builder<String[]>()
+                .addProvider("key1", d -> d[0])
+                .addProvider("key2", d -> d[1])
+                .build();
+    }
+
+    @Test
+    public void testMerge() {
+        final ColumnWidthSummary a = ColumnWidthSummary.of(widths("key1", 3, "key2", 1));
+        final ColumnWidthSummary b = ColumnWidthSummary.of(widths("key1", 1, "key2", 5));
+        final ColumnWidthSummary c = ColumnWidthSummary.of(widths("key3", 2));
+
+        final ColumnWidthSummary expected = ColumnWidthSummary.of(widths("key1", 3, "key2", 5, "key3", 2));
+        assertEquals(expected, a.merge(b).merge(c));
+        assertEquals(expected, a.merge(b.merge(c)));
+        assertEquals(expected, c.merge(b).merge(a));
+        assertEquals(a, a.merge(ColumnWidthSummary.empty()));
+        assertEquals(a, ColumnWidthSummary.empty().merge(a));
+
+        // the operands are not modified
+        assertEquals(widths("key1", 3, "key2", 1), a.getWidths());
+    }
+
+    @Test
+    public void testFieldWidthProvider() {
+        final ColumnWidthSummary summary = ColumnWidthSummary.of(widths("key1", 4, "key2", 3));
+
+        assertEquals((int) 4, (int) summary.getWidth("key1"));
+        assertNull(summary.getWidth("unknown"));
+        assertEquals("   a|b  ", DATA_FORMAT.format(key -> key.equals("key1") ? "a" : "b", summary));
+    }
+
+    @Test
+    public void testInvalidWidth() {
+        assertThrows(IllegalArgumentException.class, () -> ColumnWidthSummary.of(widths("key1", -1)));
+        assertThrows(UnsupportedOperationException.class,
+                () -> ColumnWidthSummary.of(widths("key1", 1)).getWidths().put("key2", 2));
+    }
+
+    @Test
+    public void testSerialize() throws IOException, ClassNotFoundException {
+        final ColumnWidthSummary summary = ColumnWidthSummary.of(widths("key1", 3, "key2", 7));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(summary);
+        }
+        final Object deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = in.readObject();
+        }
+
+        assertEquals(summary, deserialized);
+    }
+
+    @Test
+    public void testMeasure() {
+        final List<String[]> data = Arrays.asList(new String[]{"aaa", "b"}, new String[]{"a", "bbbb"});
+
+        final ColumnWidthSummary summary = ColumnWidthSummary.measure(DATA_FORMAT, data.iterator(), newAdapter());
+
+        assertEquals(widths("key1", 3, "key2", 4), summary.getWidths());
+    }
+
+    @Test
+    public void testAlignShards() {
+        final List<String[]> shard1 = Arrays.asList(new String[]{"aaa", "b"}, new String[]{"a", "b"});
+        final List<String[]> shard2 = Arrays.asList(new String[]{"a", "bbbb"}, new String[]{"aa", "bb"});
+
+        final TableDataFormatIterator<String[]> iterator1
+                = new TableDataFormatIterator<>(DATA_FORMAT, shard1.iterator(), newAdapter());
+        final TableDataFormatIterator<String[]> iterator2
+                = new TableDataFormatIterator<>(DATA_FORMAT, shard2.iterator(), newAdapter());
+        assertEquals(widths("key1", 3, "key2", 1), iterator1.getColumnWidthSummary().getWidths());
+        assertEquals(widths("key1", 2, "key2", 4), iterator2.getColumnWidthSummary().getWidths());
+
+        final ColumnWidthSummary global = iterator1.getColumnWidthSummary()
+                .merge(iterator2.getColumnWidthSummary());
+        iterator1.setMinimumWidths(global);
+        iterator2.setMinimumWidths(global);
+
+        final List<String> lines = new ArrayList<>();
+        iterator1.forEachRemaining(lines::add);
+        iterator2.forEachRemaining(lines::add);
+        assertEquals(Arrays.asList("aaa|b   ", "  a|b   ", "  a|bbbb", " aa|bb  "), lines);
+    }
+
+    @Test
+    public void testMinimumWidthsForEachBlock() {
+        final List<String[]> data = Arrays.asList(new String[]{"a", "b"}, new String[]{"aa", "bb"});
+        final TableDataFormatIterator<String[]> iterator
+                = new TableDataFormatIterator<>(DATA_FORMAT, data.iterator(), newAdapter());
+        iterator.setBlockSize(1);
+        iterator.setMinimumWidths(ColumnWidthSummary.of(widths("key1", 3)));
+
+        assertEquals("  a|b", iterator.next());
+        assertEquals(" aa|bb", iterator.next());
+    }
+
+    @Test
+    public void testTwoPass() {
+        final List<String[]> data = Arrays.asList(new String[]{"aaa", "b"}, new String[]{"a", "bbbb"});
+        final TwoPassTableDataFormatIterator<String[]> iterator
+                = new TwoPassTableDataFormatIterator<>(DATA_FORMAT, data::iterator, newAdapter());
+
+        assertEquals(widths("key1", 3, "key2", 4), iterator.getColumnWidthSummary().getWidths());
+        assertEquals("aaa|b   ", iterator.next());
+    }
+
+    private static Map<String, Integer> widths(final Object... keyValues) {
+        final Map<String, Integer> widths = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            widths.put((String) keyValues[i], (Integer) keyValues[i + 1]);
+        }
+        return widths;
+    }
+}
@@ -0,0 +1,136 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatBindTest {
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .constant("[")
+            .string("host")
+            .constant("/")
+            .string("service")
+            .constant("] ")
+            .string("message")
+            .build();
+
+    @Test
+    public void testBind__constant_folded() {
+        final Map<String, Object> partial = new HashMap<>();
+        partial.put("host", "web1");
+        partial.put("service", "api");
+
+        final DataFormat bound = DATA_FORMAT.bind(ValueProvider.fromMap(partial));
+
+        assertEquals(Collections.singletonList("message"), bound.getVariableNames());
+        final List<DataFormatPart> parts = ((SimpleDataFormat) bound).getFormatParts();
+        assertEquals(2, parts.size());
+        assertEquals("[web1/api] ", ((DataFormatPartConstant) parts.get(0)).getConstValue());
+
+        final int[] calls = new int[1];
+        assertEquals("[web1/api] hello", bound.format(key -> {
+            calls[0]++;
+            return "hello";
+        }));
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testBind__options_are_applied() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("host")
+                .constant(",")
+                .string("count")
+                .escaping(ValueEscaping.CSV)
+                .renderers(new ValueRendererRegistry()
+                        .register(Integer.class, (value, stringBuilder) -> stringBuilder.append('#').append(value)))
+                .build();
+
+        final DataFormat bound = dataFormat.bind(key -> key.equals("host") ? "a,b" : 1);
+        assertEquals(Collections.emptyList(), bound.getVariableNames());
+        assertEquals("\"a,b\",#1", bound.format(key -> {
+            throw new IllegalArgumentException(key);
+        }));
+    }
+
+    @Test
+    public void testBind__padded_variable() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("host", ValuePadding.LEFT)
+                .constant("|")
+                .string("message", ValuePadding.RIGHT)
+                .constant("|")
+                .build();
+
+        final DataFormat bound = dataFormat.bind(ValueProvider.fromMap(Collections.singletonMap("host", "web1")));
+        assertEquals(Arrays.asList("host", "message"), bound.getVariableNames());
+
+        final List<ValueProvider> data = Arrays.asList(key -> "a", key -> "abcdefg");
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> iterator
+                = new TableDataFormatIteratorWithoutAdapter<>(bound, data.iterator());
+        assertEquals("web1|a      |", iterator.next());
+        assertEquals("web1|abcdefg|", iterator.next());
+
+        assertEquals("  web1|x  |", bound.format(key -> "x", key -> key.equals("host") ? 6 : 3));
+    }
+
+    @Test
+    public void testBind__unbound_variables_remain() {
+        final DataFormat bound = DATA_FORMAT.bind(ValueProvider.fromMap(Collections.singletonMap("service", "api")));
+
+        assertEquals(Arrays.asList("host", "message"), bound.getVariableNames());
+        assertEquals("[web2/api] hi", bound.format(key -> key.equals("host") ? "web2" : "hi"));
+    }
+
+    @Test
+    public void testBind__other_implementation() {
+        final DataFormat upper = new CachingDataFormat(DATA_FORMAT, 10);
+
+        final DataFormat bound = upper.bind(ValueProvider.fromMap(Collections.singletonMap("host", "web1")));
+        assertEquals(Arrays.asList("host", "service", "message"), bound.getVariableNames());
+        assertEquals("[web1/api] hi", bound.format(key -> key.equals("service") ? "api" : "hi"));
+    }
+
+    @Test
+    public void testBind__other_implementation_in_table() {
+        final DataFormat dataFormat = new CachingDataFormat(new DataFormat.Builder()
+                .string("host", ValuePadding.LEFT)
+                .constant("|")
+                .string("message", ValuePadding.RIGHT)
+                .constant("|")
+                .build(), 10);
+
+        final DataFormat bound = dataFormat.bind(ValueProvider.fromMap(Collections.singletonMap("host", "web1")));
+        assertEquals(Arrays.asList("host", "message"), bound.getVariableNames());
+
+        // the bound values are measured without retrieving them from the data
+        final List<ValueProvider> data = Arrays.asList(
+                ValueProvider.fromMap(Collections.singletonMap("message", "a")),
+                ValueProvider.fromMap(Collections.singletonMap("message", "abcdefg")));
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> iterator
+                = new TableDataFormatIteratorWithoutAdapter<>(bound, data.iterator());
+        assertEquals("web1|a      |", iterator.next());
+        assertEquals("web1|abcdefg|", iterator.next());
+
+        assertEquals("  web1|x  |", bound.format(
+                ValueProvider.fromMap(Collections.singletonMap("message", "x")),
+                key -> key.equals("host") ? 6 : 3));
+    }
+
+    @Test
+    public void testBind__nested_format() {
+        final DataFormat composed = new DataFormat.Builder()
+                .format(new CachingDataFormat(DATA_FORMAT, 10))
+                .constant("!")
+                .build();
+
+        final DataFormat bound = composed.bind(ValueProvider.fromMap(Collections.singletonMap("host", "web1")));
+        assertEquals("[web1/api] hi!", bound.format(key -> key.equals("service") ? "api" : "hi"));
+    }
+}
@@ -0,0 +1,137 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatCatalogTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testLoad() throws IOException {
+        final DataFormat csvFormat = new DataFormat.Builder()
+                .string("name")
+                .constant(",")
+                .string("comment")
+                .escaping(ValueEscaping.CSV)
+                .build();
+
+        final Path catalogPath = tempDir.resolve("formats.catalog");
+        try (OutputStream out = Files.newOutputStream(catalogPath)) {
+            new DataFormatCatalog.Builder()
+                    .addPrintfFormat("printf", "%a=%b%%",
+                            new VariablePaddingSpecifications().add("%b", ValuePadding.LEFT))
+                    .addPrintfFormat("unicode", "あ%a𠮷")
+                    .add("csv", csvFormat)
+                    .write(out);
+        }
+
+        final DataFormatCatalog catalog = DataFormatCatalog.load(catalogPath);
+        assertEquals(3, catalog.getNames().size());
+        assertTrue(catalog.contains("printf"));
+        assertFalse(catalog.contains("unknown"));
+        assertNull(catalog.get("unknown"));
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("%a", "A");
+        map.put("%b", "B");
+        map.put("name", "N");
+        map.put("comment", "x,y");
+        final ValueProvider valueProvider = ValueProvider.fromMap(map);
+
+        final DataFormat printfFormat = catalog.get("printf");
+        assertEquals("A=  B%", printfFormat.format(valueProvider, fieldName -> 3));
+        assertArrayEquals(new String[]{"%a", "%b"}, printfFormat.getVariableNames().toArray(new String[0]));
+        assertEquals("あA𠮷", catalog.get("unicode").format(valueProvider));
+        assertEquals("N,\"x,y\"", catalog.get("csv").format(valueProvider));
+
+        // the materialized format is reused
+        assertSame(printfFormat, catalog.get("printf"));
+    }
+
+    @Test
+    public void testLoad__shared_parts() {
+        final byte[] bytes = new DataFormatCatalog.Builder()
+                .addPrintfFormat("format1", "[%a]")
+                .addPrintfFormat("format2", "[%a]")
+                .toByteArray();
+
+        final DataFormatCatalog catalog = DataFormatCatalog.load(bytes);
+        final SimpleDataFormat format1 = (SimpleDataFormat) catalog.get("format1");
+        final SimpleDataFormat format2 = (SimpleDataFormat) catalog.get("format2");
+        assertNotSame(format1, format2);
+        for (int i = 0; i < 3; i++) {
+            assertSame(format1.getFormatParts().get(i), format2.getFormatParts().get(i));
+        }
+    }
+
+    @Test
+    public void testLoad__missing_value() {
+        final byte[] bytes = new DataFormatCatalog.Builder()
+                .add("format", new DataFormat.Builder()
+                        .string("key1")
+                        .constant(",")
+                        .string("key2")
+                        .constant(",")
+                        .string("key3")
+                        .missingValue(MissingValuePolicy.EMPTY)
+                        .missingValue("key2", MissingValuePolicy.defaultValue("-"))
+                        .missingValue("key3", MissingValuePolicy.FAIL)
+                        .build())
+                .toByteArray();
+
+        final DataFormat format = DataFormatCatalog.load(bytes).get("format");
+        final Map<String, Object> values = new HashMap<>();
+        values.put("key3", "c");
+        assertEquals(",-,c", format.format(ValueProvider.fromMap(values)));
+        assertThrows(DataFormattingException.class, () -> format.format(new DataFormatTest.DummyProvider()));
+    }
+
+    @Test
+    public void testAdd__error_with_non_string_default_value() {
+        final DataFormat format = new DataFormat.Builder()
+                .string("key")
+                .missingValue(MissingValuePolicy.defaultValue(0))
+                .build();
+
+        assertThrows(IllegalArgumentException.class, () -> new DataFormatCatalog.Builder().add("format", format));
+    }
+
+    @Test
+    public void testLoad__display_width() {
+        final byte[] bytes = new DataFormatCatalog.Builder()
+                .add("format", new DataFormat.Builder()
+                        .string("key1", ValuePadding.LEFT)
+                        .constant("|")
+                        .string("key2", ValuePadding.RIGHT)
+                        .displayWidth("key1", DisplayWidth.EAST_ASIAN)
+                        .build())
+                .toByteArray();
+
+        final DataFormat format = DataFormatCatalog.load(bytes).get("format");
+        // only key1 counts the wide chars as two columns
+        assertEquals("  あ|あ   ", format.format(key -> "あ", key -> 4));
+    }
+
+    @Test
+    public void testLoad__error_with_illegal_data() {
+        assertThrows(IllegalArgumentException.class, () -> DataFormatCatalog.load(new byte[16]));
+    }
+
+    @Test
+    public void testAdd__error_with_duplicated_name() {
+        final DataFormatCatalog.Builder builder = new DataFormatCatalog.Builder()
+                .addPrintfFormat("format", "%a");
+
+        assertThrows(IllegalArgumentException.class, () -> builder.addPrintfFormat("format", "%b"));
+    }
+}
@@ -0,0 +1,142 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatCharSequenceTest {
+    /**
+     * The CharSequence whose toString() must not be called.
+     */
+    private static final class NoCopySequence implements CharSequence {
+        private final char[] chars;
+        private final int offset;
+        private final int length;
+
+        NoCopySequence(final String source, final int offset, final int length) {
+            this.chars = source.toCharArray();
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return chars[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            throw new AssertionError("subSequence() is called");
+        }
+
+        @Override
+        public String toString() {
+            throw new AssertionError("toString() is called");
+        }
+    }
+
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .string("key1", ValuePadding.LEFT)
+            .constant("|")
+            .string("key2", ValuePadding.RIGHT)
+            .constant("|")
+            .string("key3")
+            .escaping("key3", ValueEscaping.CSV)
+            .build();
+
+    @Test
+    public void testFormat__char_sequence() {
+        final String line = "GET /index.html 200,OK";
+        final ValueProvider valueProvider = key -> {
+            switch (key) {
+                case "key1":
+                    return new NoCopySequence(line, 0, 3);
+                case "key2":
+                    return CharBuffer.wrap(line, 4, 15);
+                default:
+                    return new NoCopySequence(line, 16, 6);
+            }
+        };
+
+        assertEquals("GET|/index.html|\"200,OK\"", DATA_FORMAT.format(valueProvider));
+        assertEquals("    GET|/index.html |\"200,OK\"", DATA_FORMAT.format(valueProvider, key -> key.equals("key1") ? 7 : 12));
+        assertEquals(24, DATA_FORMAT.measure(valueProvider, FieldWidthProvider.empty));
+    }
+
+    @Test
+    public void testFormat__char_array() {
+        final char[] buffer = "abcdef".toCharArray();
+        final CharBuffer slice = CharBuffer.wrap(buffer, 2, 3);
+
+        assertEquals("abcdef|cde|x", DATA_FORMAT.format(key -> key.equals("key1") ? buffer : key.equals("key2") ? slice : "x"));
+    }
+
+    @Test
+    public void testTable__char_sequence() {
+        final String line = "aaa bbbbb";
+        final List<ValueProvider> data = Arrays.asList(
+                key -> new NoCopySequence(line, 0, key.equals("key2") ? 3 : 1),
+                key -> new NoCopySequence(line, 4, key.equals("key2") ? 1 : 5));
+
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> iterator
+                = new TableDataFormatIteratorWithoutAdapter<>(DATA_FORMAT, data.iterator());
+
+        assertEquals("    a|aaa|a", iterator.next());
+        assertEquals("bbbbb|b  |bbbbb", iterator.next());
+    }
+
+    @Test
+    public void testFormat__char_array_padding_and_escaping() {
+        final char[] value = "a,b".toCharArray();
+
+        assertEquals("  a,b|a,b  |\"a,b\"", DATA_FORMAT.format(key -> value, key -> 5));
+        assertEquals(17, DATA_FORMAT.measure(key -> value, key -> 5));
+    }
+
+    @Test
+    public void testCache__reused_builder() {
+        final CachingDataFormat cachingDataFormat = new CachingDataFormat(DATA_FORMAT, 10);
+        final StringBuilder reused = new StringBuilder();
+
+        reused.append("a");
+        assertEquals("a|a|a", cachingDataFormat.format(key -> reused));
+        reused.setLength(0);
+        reused.append("b");
+        assertEquals("b|b|b", cachingDataFormat.format(key -> reused));
+        reused.setLength(0);
+        reused.append("a");
+        assertEquals("a|a|a", cachingDataFormat.format(key -> reused));
+        assertEquals(1, cachingDataFormat.getHitCount());
+    }
+
+    @Test
+    public void testProjectionBuffering__reused_array() {
+        final char[] reused = new char[1];
+        final Iterator<Character> data = Arrays.asList('a', 'b', 'a').iterator();
+        final ValueProviderAdapter<Character> adapter = new ValueProviderAdapter.Builder<Character>()
+                .addProvider("key1", c -> {
+                    reused[0] = c;
+                    return reused;
+                })
+                .addProvider("key2", c -> "-")
+                .addProvider("key3", c -> "-")
+                .build();
+
+        final TableDataFormatIterator<Character> iterator = new TableDataFormatIterator<>(DATA_FORMAT, data, adapter);
+        iterator.setProjectionBuffering(true);
+
+        assertEquals("a|-|-", iterator.next());
+        assertEquals("b|-|-", iterator.next());
+        assertEquals("a|-|-", iterator.next());
+    }
+}
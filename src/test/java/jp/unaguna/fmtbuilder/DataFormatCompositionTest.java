@@ -0,0 +1,149 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatCompositionTest {
+    @Test
+    public void testFormat__inlined() {
+        final DataFormat header = DataFormat.fromPrintfFormat("[%t] ");
+        final DataFormat user = new DataFormat.Builder()
+                .constant("user=")
+                .string("name")
+                .build();
+
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .format(header)
+                .constant("<")
+                .format(user)
+                .constant(">")
+                .build();
+
+        final Map<String, Object> values = new HashMap<>();
+        values.put("%t", "12:00");
+        values.put("name", "alice");
+        assertEquals("[12:00] <user=alice>", dataFormat.format(ValueProvider.fromMap(values)));
+        assertEquals(Arrays.asList("%t", "name"), dataFormat.getVariableNames());
+
+        // adjacent constants are merged
+        final List<DataFormatPart> parts = ((SimpleDataFormat) dataFormat).getFormatParts();
+        assertEquals(5, parts.size());
+        assertEquals("] <user=", ((DataFormatPartConstant) parts.get(2)).getConstValue());
+    }
+
+    @Test
+    public void testFormat__inlined_parts_keep_options() {
+        final DataFormat fragment = new DataFormat.Builder()
+                .string("a")
+                .escaping(ValueEscaping.CSV)
+                .build();
+
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .format(fragment)
+                .constant("|")
+                .string("b")
+                .escaping(ValueEscaping.TSV)
+                .missingValue(MissingValuePolicy.EMPTY)
+                .build();
+
+        assertEquals("\"x,\ty\"|x,\\ty", dataFormat.format(key -> "x,\ty"));
+        assertThrows(DataFormattingException.class, () -> dataFormat.format(key -> {
+            throw new IllegalArgumentException(key);
+        }));
+    }
+
+    @Test
+    public void testFormat__padding_in_table() {
+        final DataFormat fragment = new DataFormat.Builder()
+                .string("a", ValuePadding.LEFT)
+                .build();
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .format(fragment)
+                .constant("|")
+                .build();
+
+        final List<ValueProvider> data = Arrays.asList(key -> "1", key -> "123");
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> iterator
+                = new TableDataFormatIteratorWithoutAdapter<>(dataFormat, data.iterator());
+
+        assertEquals("  1|", iterator.next());
+        assertEquals("123|", iterator.next());
+    }
+
+    @Test
+    public void testFormat__other_implementation() {
+        final DataFormat upper = new DataFormat() {
+            private final DataFormat inner = new DataFormat.Builder().string("a").build();
+
+            @Override
+            public String format(final ValueProvider valueProvider) {
+                return inner.format(valueProvider).toUpperCase();
+            }
+
+            @Override
+            public String format(final ValueProvider valueProvider, final FieldWidthProvider fieldWidthProvider) {
+                return format(valueProvider);
+            }
+
+            @Override
+            public StringBuilder format(final ValueProvider valueProvider, final StringBuilder toAppendTo) {
+                return toAppendTo.append(format(valueProvider));
+            }
+
+            @Override
+            public StringBuilder format(
+                    final ValueProvider valueProvider,
+                    final FieldWidthProvider fieldWidthProvider,
+                    final StringBuilder toAppendTo) {
+                return toAppendTo.append(format(valueProvider));
+            }
+
+            @Override
+            public List<String> getVariableNames() {
+                return inner.getVariableNames();
+            }
+        };
+
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("<")
+                .format(upper)
+                .constant(">")
+                .string("b")
+                .build();
+
+        assertEquals("<ABC>abc", dataFormat.format(key -> "abc"));
+        assertEquals(Arrays.asList("a", "b"), dataFormat.getVariableNames());
+    }
+
+    @Test
+    public void testFormat__error_of_embedded_format_is_not_wrapped_again() {
+        final DataFormat inner = new DataFormat.Builder().string("a").build();
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("<")
+                .format(new BoundDataFormat(inner, ValueProvider.fromMap(new HashMap<>())))
+                .constant(">")
+                .build();
+        final IllegalStateException error = new IllegalStateException("error");
+        final ValueProvider valueProvider = key -> {
+            throw error;
+        };
+
+        final DataFormattingException formatException
+                = assertThrows(DataFormattingException.class, () -> dataFormat.format(valueProvider));
+        assertSame(error, formatException.getCause());
+
+        final DataFormattingException measureException = assertThrows(DataFormattingException.class,
+                () -> dataFormat.measure(valueProvider, FieldWidthProvider.empty));
+        assertSame(error, measureException.getCause());
+
+        final DataFormattingException measureUtf8Exception = assertThrows(DataFormattingException.class,
+                () -> dataFormat.measureUtf8(valueProvider, FieldWidthProvider.empty));
+        assertSame(error, measureUtf8Exception.getCause());
+    }
+}
@@ -0,0 +1,84 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatDeferTest {
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .constant("user=")
+            .string("user", ValuePadding.RIGHT)
+            .constant(" status=")
+            .string("status")
+            .build();
+
+    @Test
+    public void testDeferUntilUsed() {
+        final int[] calls = {0};
+        final ValueProvider valueProvider = key -> {
+            calls[0]++;
+            return key.equals("user") ? "alice" : "ok";
+        };
+
+        final DeferredFormat deferred = DATA_FORMAT.defer(valueProvider);
+        assertEquals(0, calls[0]);
+        assertFalse(deferred.isFormatted());
+
+        assertEquals("user=alice status=ok", deferred.toString());
+        assertTrue(deferred.isFormatted());
+        final int callsAfterFirstUse = calls[0];
+
+        // the text is cached
+        assertEquals("user=alice status=ok", deferred.toString());
+        assertEquals(20, deferred.length());
+        assertEquals('a', deferred.charAt(5));
+        assertEquals("alice", deferred.subSequence(5, 10).toString());
+        assertEquals("> user=alice status=ok", deferred.appendTo(new StringBuilder("> ")).toString());
+        assertEquals(callsAfterFirstUse, calls[0]);
+    }
+
+    @Test
+    public void testCachedValues() {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("user", "alice");
+        values.put("status", "ok");
+
+        final DeferredFormat deferred = DATA_FORMAT.defer(values::get);
+        assertEquals("user=alice status=ok", deferred.toString());
+
+        // changes after the first use are not reflected
+        values.put("status", "ng");
+        assertEquals("user=alice status=ok", deferred.toString());
+    }
+
+    @Test
+    public void testFieldWidth() {
+        final DeferredFormat deferred = DATA_FORMAT.defer(key -> key.equals("user") ? "bob" : "ok", key -> 6);
+
+        assertEquals("user=bob    status=ok", deferred.toString());
+    }
+
+    @Test
+    public void testFormattable() {
+        final DeferredFormat deferred = DATA_FORMAT.defer(key -> key.equals("user") ? "bob" : "ok");
+
+        assertEquals("[user=bob status=ok]", String.format("[%s]", deferred));
+        assertEquals("[USER=BOB STATUS=OK]", String.format("[%S]", deferred));
+        assertEquals("[user=bob]", String.format("[%.8s]", deferred));
+        assertEquals("[user=bob status=ok  ]", String.format("[%-20s]", deferred));
+        assertEquals("[  user=bob status=ok]", String.format("[%20s]", deferred));
+    }
+
+    @Test
+    public void testError() {
+        final DeferredFormat deferred = DATA_FORMAT.defer(key -> {
+            throw new IllegalArgumentException(key);
+        });
+
+        assertThrows(DataFormattingException.class, deferred::toString);
+        assertFalse(deferred.isFormatted());
+    }
+}
@@ -0,0 +1,121 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatEscapingTest {
+    @ParameterizedTest
+    @CsvSource({
+            "NONE, abc",
+            "CSV, abc",
+            "TSV, abc",
+            "JSON, abc",
+    })
+    public void testEscaping__no_escape(final ValueEscaping escaping, final String value) {
+        final StringBuilder stringBuilder = new StringBuilder("head:");
+        escaping.append(stringBuilder, value);
+
+        assertEquals("head:" + value, stringBuilder.toString());
+        assertEquals(value.length(), escaping.escapedLength(value));
+    }
+
+    @Test
+    public void testEscaping__csv() {
+        assertEscaped(ValueEscaping.CSV, "a,b", "\"a,b\"");
+        assertEscaped(ValueEscaping.CSV, "say \"hi\"", "\"say \"\"hi\"\"\"");
+        assertEscaped(ValueEscaping.CSV, "a\nb", "\"a\nb\"");
+        assertEscaped(ValueEscaping.CSV, "a\tb", "a\tb");
+    }
+
+    @Test
+    public void testEscaping__tsv() {
+        assertEscaped(ValueEscaping.TSV, "a\tb", "a\\tb");
+        assertEscaped(ValueEscaping.TSV, "a\r\nb", "a\\r\\nb");
+        assertEscaped(ValueEscaping.TSV, "a\\b", "a\\\\b");
+        assertEscaped(ValueEscaping.TSV, "a,b", "a,b");
+    }
+
+    @Test
+    public void testEscaping__json() {
+        assertEscaped(ValueEscaping.JSON, "say \"hi\"", "say \\\"hi\\\"");
+        assertEscaped(ValueEscaping.JSON, "a\\b", "a\\\\b");
+        assertEscaped(ValueEscaping.JSON, "a\nb\tc", "a\\nb\\tc");
+        assertEscaped(ValueEscaping.JSON, "a\u0001b", "a\\u0001b");
+        assertEscaped(ValueEscaping.JSON, "a\u001fb", "a\\u001fb");
+        assertEscaped(ValueEscaping.JSON, "a/b", "a/b");
+    }
+
+    @Test
+    public void testFormat__escaping_for_format() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1")
+                .constant(",")
+                .string("key2")
+                .escaping(ValueEscaping.CSV)
+                .build();
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("key1", "a,b");
+        map.put("key2", "c");
+
+        assertEquals("\"a,b\",c", dataFormat.format(ValueProvider.fromMap(map)));
+    }
+
+    @Test
+    public void testFormat__escaping_for_variable() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("{\"msg\":\"")
+                .string("msg")
+                .constant("\",\"raw\":")
+                .string("raw")
+                .constant("}")
+                .escaping(ValueEscaping.NONE)
+                .escaping("msg", ValueEscaping.JSON)
+                .build();
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("msg", "say \"hi\"");
+        map.put("raw", "[\"a\"]");
+
+        assertEquals("{\"msg\":\"say \\\"hi\\\"\",\"raw\":[\"a\"]}", dataFormat.format(ValueProvider.fromMap(map)));
+    }
+
+    @Test
+    public void testFormat__escaping_with_padding() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key", ValuePadding.LEFT)
+                .constant("|")
+                .escaping(ValueEscaping.CSV)
+                .build();
+
+        final List<ValueProvider> data = new ArrayList<>();
+        data.add(key -> "a,b");
+        data.add(key -> "abcd");
+
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> tableDataFormatIterator
+                = new TableDataFormatIteratorWithoutAdapter<>(
+                dataFormat,
+                data.iterator()
+        );
+
+        assertEquals("\"a,b\"|", tableDataFormatIterator.next());
+        assertEquals(" abcd|", tableDataFormatIterator.next());
+        assertFalse(tableDataFormatIterator.hasNext());
+    }
+
+    private void assertEscaped(final ValueEscaping escaping, final String value, final String expected) {
+        final StringBuilder stringBuilder = new StringBuilder();
+        escaping.append(stringBuilder, value);
+
+        assertEquals(expected, stringBuilder.toString());
+        assertEquals(expected.length(), escaping.escapedLength(value));
+    }
+}
@@ -0,0 +1,92 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatGroupTest {
+    @Test
+    public void testFormat() {
+        final DataFormat format1 = new DataFormat.Builder()
+                .string("key1")
+                .constant(":")
+                .string("key2")
+                .build();
+        final DataFormat format2 = DataFormat.fromPrintfFormat("key2=%b");
+        final DataFormatGroup group = DataFormatGroup.of(format1, format2);
+
+        final Map<String, Integer> counts = new HashMap<>();
+        final ValueProvider valueProvider = key -> {
+            counts.merge(key, 1, Integer::sum);
+            return key.toUpperCase();
+        };
+
+        final StringBuilder sink1 = new StringBuilder();
+        final StringBuilder sink2 = new StringBuilder();
+        group.format(valueProvider, sink1, sink2);
+
+        assertEquals("KEY1:KEY2", sink1.toString());
+        assertEquals("key2=%B", sink2.toString());
+        assertEquals(1, (int) counts.get("key1"));
+        assertEquals(1, (int) counts.get("key2"));
+        assertEquals(1, (int) counts.get("%b"));
+        assertArrayEquals(new String[]{"key1", "key2", "%b"}, group.getVariableNames().toArray(new String[0]));
+    }
+
+    @Test
+    public void testFormat__shared_variable() {
+        final DataFormat format1 = new DataFormat.Builder()
+                .constant("a=")
+                .string("key")
+                .build();
+        final DataFormat format2 = new DataFormat.Builder()
+                .constant("[")
+                .string("key", ValuePadding.LEFT)
+                .constant("]")
+                .build();
+        final DataFormatGroup group = DataFormatGroup.of(format1, format2);
+
+        final int[] count = {0};
+        final ValueProvider valueProvider = key -> {
+            count[0]++;
+            return "test";
+        };
+
+        final List<String> actual = group.format(valueProvider);
+        assertEquals("a=test", actual.get(0));
+        assertEquals("[test]", actual.get(1));
+        assertEquals(1, count[0]);
+
+        final StringBuilder sink1 = new StringBuilder();
+        final StringBuilder sink2 = new StringBuilder();
+        group.format(valueProvider, fieldName -> 6, sink1, sink2);
+        assertEquals("a=test", sink1.toString());
+        assertEquals("[  test]", sink2.toString());
+        assertEquals(2, count[0]);
+    }
+
+    @Test
+    public void testFormat__error_with_wrong_number_of_buffers() {
+        final DataFormatGroup group = DataFormatGroup.of(
+                DataFormat.fromPrintfFormat("%a"),
+                DataFormat.fromPrintfFormat("%b"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> group.format(key -> "test", new StringBuilder()));
+    }
+
+    @Test
+    public void testFormat__error() {
+        final DataFormatGroup group = DataFormatGroup.of(
+                DataFormat.fromPrintfFormat("%a"));
+
+        final DataFormattingException actualExc = assertThrowsExactly(
+                DataFormattingException.class,
+                () -> group.format(new DataFormatTest.DummyProvider()));
+        assertInstanceOf(IllegalArgumentException.class, actualExc.getCause());
+    }
+}
@@ -0,0 +1,90 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatMeasureTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"", "abc", "a,b", "a\"b", "日本語", "😀", "tab\there", "é"})
+    public void testMeasure(final String value) {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("«")
+                .string("plain")
+                .constant("|")
+                .string("left", ValuePadding.LEFT)
+                .constant("|")
+                .string("right", ValuePadding.RIGHT)
+                .constant("|")
+                .string("csv", ValuePadding.LEFT)
+                .constant("|")
+                .string("wide", ValuePadding.RIGHT)
+                .constant("|")
+                .string("count", ValuePadding.LEFT)
+                .constant("»")
+                .escaping("csv", ValueEscaping.CSV)
+                .displayWidth("wide", DisplayWidth.EAST_ASIAN)
+                .renderers("count", new ValueRendererRegistry()
+                        .register(Integer.class, (v, stringBuilder) -> stringBuilder.append(v).append(",€")))
+                .escaping("count", ValueEscaping.CSV)
+                .build();
+        final ValueProvider valueProvider = key -> key.equals("count") ? value.length() : value;
+
+        for (final FieldWidthProvider fieldWidthProvider : new FieldWidthProvider[]{
+                FieldWidthProvider.empty, key -> 0, key -> 5, key -> 12}) {
+            final String expected = dataFormat.format(valueProvider, fieldWidthProvider);
+            assertEquals(expected.length(), dataFormat.measure(valueProvider, fieldWidthProvider));
+            assertEquals(expected.getBytes(StandardCharsets.UTF_8).length,
+                    dataFormat.measureUtf8(valueProvider, fieldWidthProvider));
+        }
+    }
+
+    @Test
+    public void testMeasure__missing_value() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("a")
+                .constant("-")
+                .string("b")
+                .missingValue("b", MissingValuePolicy.defaultValue("n/a"))
+                .build();
+        final ValueProvider valueProvider = ValueProvider.fromMap(Collections.singletonMap("a", "x"));
+
+        assertEquals(5, dataFormat.measure(valueProvider, FieldWidthProvider.empty));
+        assertThrows(DataFormattingException.class,
+                () -> dataFormat.measure(ValueProvider.fromMap(Collections.emptyMap()), FieldWidthProvider.empty));
+    }
+
+    @Test
+    public void testMeasure__bound_and_nested() {
+        final DataFormat inner = new DataFormat.Builder()
+                .string("host", ValuePadding.LEFT)
+                .constant(":")
+                .string("port")
+                .build();
+        final DataFormat bound = inner.bind(ValueProvider.fromMap(Collections.singletonMap("host", "ホスト")));
+        final DataFormat composed = new DataFormat.Builder()
+                .constant("<")
+                .format(new CachingDataFormat(inner, 4))
+                .constant(">")
+                .build();
+        final ValueProvider valueProvider = key -> key.equals("host") ? "h" : 80;
+
+        assertEquals(bound.format(valueProvider, key -> 6).length(), bound.measure(valueProvider, key -> 6));
+        assertEquals(bound.format(valueProvider, key -> 6).getBytes(StandardCharsets.UTF_8).length,
+                bound.measureUtf8(valueProvider, key -> 6));
+        assertEquals(6, composed.measure(valueProvider, FieldWidthProvider.empty));
+        assertEquals(6, composed.measureUtf8(valueProvider, FieldWidthProvider.empty));
+    }
+
+    @Test
+    public void testUtf8Length() {
+        for (final String value : new String[]{"", "a", "é", "€", "😀", "\uD800", "\uDC00a", "a\uD800"}) {
+            assertEquals(value.getBytes(StandardCharsets.UTF_8).length, CharSequences.utf8Length(value), value);
+        }
+    }
+}
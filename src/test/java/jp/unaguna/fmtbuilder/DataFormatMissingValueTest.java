@@ -0,0 +1,138 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.MissingFormatArgumentException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatMissingValueTest {
+    @Test
+    public void testFind() {
+        final Map<String, Object> map = new HashMap<>();
+        map.put("key", "test");
+        map.put("null", null);
+        final ValueProvider valueProvider = ValueProvider.fromMap(map);
+
+        assertEquals("test", valueProvider.find("key"));
+        assertNull(valueProvider.find("null"));
+        assertSame(ValueProvider.MISSING, valueProvider.find("unknown"));
+    }
+
+    @Test
+    public void testFind__default_implementation() {
+        // an exception of get() may be a bug of the provider, so it is not converted to MISSING
+        assertThrows(IllegalArgumentException.class, () -> new DataFormatTest.DummyProvider().find("key"));
+
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key")
+                .missingValue(MissingValuePolicy.EMPTY)
+                .build();
+        final DataFormattingException actualExc = assertThrows(DataFormattingException.class,
+                () -> dataFormat.format(key -> Integer.parseInt("x")));
+        assertInstanceOf(MissingFormatArgumentException.class, actualExc.getCause());
+        assertInstanceOf(NumberFormatException.class, actualExc.getCause().getCause());
+    }
+
+    @Test
+    public void testFind__extractor_default_implementation() {
+        final ValueExtractor<String> extractor = (element, key) -> {
+            throw new IllegalArgumentException(key);
+        };
+
+        assertThrows(IllegalArgumentException.class, () -> extractor.find("data", "key"));
+    }
+
+    @Test
+    public void testFind__adapter() {
+        final ValueProviderAdapter<String> adapter = new ValueProviderAdapter.Builder<String>()
+                .addProvider("key", d -> d)
+                .build();
+        adapter.setElement("test");
+
+        assertEquals("test", adapter.find("key"));
+        assertSame(ValueProvider.MISSING, adapter.find("unknown"));
+        assertThrows(IllegalArgumentException.class, () -> adapter.get("unknown"));
+    }
+
+    @Test
+    public void testMissingValue__for_format() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1")
+                .constant(",")
+                .string("key2")
+                .missingValue(MissingValuePolicy.defaultValue("-"))
+                .build();
+
+        assertEquals("-,-", dataFormat.format(new MissingOnlyProvider()));
+    }
+
+    @Test
+    public void testMissingValue__for_variable() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("[")
+                .string("key1", ValuePadding.LEFT)
+                .constant("]")
+                .string("key2")
+                .missingValue("key1", MissingValuePolicy.EMPTY)
+                .missingValue("key2", MissingValuePolicy.defaultValue(0))
+                .build();
+
+        assertEquals("[   ]0", dataFormat.format(new MissingOnlyProvider(), fieldName -> 3));
+    }
+
+    @Test
+    public void testMissingValue__fail() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1")
+                .string("key2")
+                .missingValue(MissingValuePolicy.EMPTY)
+                .missingValue("key2", MissingValuePolicy.FAIL)
+                .build();
+
+        final DataFormattingException actualExc = assertThrowsExactly(
+                DataFormattingException.class,
+                () -> dataFormat.format(new MissingOnlyProvider()));
+        assertInstanceOf(MissingFormatArgumentException.class, actualExc.getCause());
+        assertEquals("key2", ((MissingFormatArgumentException) actualExc.getCause()).getFormatSpecifier());
+    }
+
+    @Test
+    public void testMissingValue__table() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key", ValuePadding.LEFT)
+                .missingValue(MissingValuePolicy.defaultValue("n/a"))
+                .build();
+
+        final Map<String, Object> map = new HashMap<>();
+        map.put("key", "a");
+        final Map<String, Object> emptyMap = new HashMap<>();
+
+        final TableDataFormatIteratorWithoutAdapter<ValueProviderMap> tableDataFormatIterator
+                = new TableDataFormatIteratorWithoutAdapter<>(
+                dataFormat,
+                Arrays.asList(ValueProvider.fromMap(map), ValueProvider.fromMap(emptyMap)).iterator()
+        );
+
+        assertEquals("  a", tableDataFormatIterator.next());
+        assertEquals("n/a", tableDataFormatIterator.next());
+    }
+
+    /**
+     * The provider which reports that every value is missing without any exception.
+     */
+    static class MissingOnlyProvider implements ValueProvider {
+        @Override
+        public Object get(String key) {
+            throw new AssertionError("get must not be called");
+        }
+
+        @Override
+        public Object find(String key) {
+            return MISSING;
+        }
+    }
+}
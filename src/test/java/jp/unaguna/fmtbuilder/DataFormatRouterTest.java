@@ -0,0 +1,118 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataFormatRouterTest {
+    interface Event {
+        String getType();
+    }
+
+    public static class LoginEvent implements Event {
+        public String getType() {
+            return "login";
+        }
+
+        public String getUser() {
+            return "alice";
+        }
+    }
+
+    public static class AdminLoginEvent extends LoginEvent {
+        @Override
+        public String getUser() {
+            return "root";
+        }
+    }
+
+    public static class ErrorEvent implements Event {
+        public String getType() {
+            return "error";
+        }
+
+        public int getCode() {
+            return 500;
+        }
+    }
+
+    public static class OtherEvent implements Event {
+        public String getType() {
+            return "other";
+        }
+    }
+
+    private static final DataFormat LOGIN_FORMAT = new DataFormat.Builder()
+            .constant("login ").string("user")
+            .build();
+    private static final DataFormat ERROR_FORMAT = new DataFormat.Builder()
+            .constant("error ").string("code")
+            .build();
+
+    @Test
+    public void testFormat__by_class() {
+        final DataFormatRouter<Event> router = new DataFormatRouter.Builder<Event>()
+                .route(LoginEvent.class, LOGIN_FORMAT, (element, key) -> element.getUser())
+                .route(ErrorEvent.class, ERROR_FORMAT)
+                .build();
+
+        assertEquals("login alice", router.format(new LoginEvent()));
+        // routed by the superclass
+        assertEquals("login root", router.format(new AdminLoginEvent()));
+        assertEquals("error 500", router.format(new ErrorEvent()));
+        assertSame(LOGIN_FORMAT, router.dataFormatFor(new AdminLoginEvent()));
+        assertNull(router.dataFormatFor(new OtherEvent()));
+        assertThrows(IllegalArgumentException.class, () -> router.format(new OtherEvent()));
+    }
+
+    @Test
+    public void testFormat__by_interface_and_fallback() {
+        final DataFormat typeFormat = new DataFormat.Builder().constant("event ").string("type").build();
+        final DataFormatRouter<Object> router = new DataFormatRouter.Builder<Object>()
+                .route(ErrorEvent.class, ERROR_FORMAT)
+                .route(Event.class, typeFormat, (element, key) -> element.getType())
+                .fallback(new DataFormat.Builder().constant("? ").string("value").build(),
+                        (element, key) -> element.toString())
+                .build();
+
+        assertEquals("error 500", router.format(new ErrorEvent()));
+        assertEquals("event login", router.format(new LoginEvent()));
+        assertEquals("? 42", router.format(42));
+    }
+
+    @Test
+    public void testFormat__by_discriminator() {
+        final DataFormatRouter<Event> router = new DataFormatRouter.Builder<Event>()
+                .discriminator(Event::getType)
+                .routeByDiscriminator("error", ERROR_FORMAT, (element, key) -> 404)
+                .route(Event.class, new DataFormat.Builder().string("type").build(), (element, key) -> element.getType())
+                .build();
+
+        assertEquals("error 404", router.format(new ErrorEvent()));
+        assertEquals("login", router.format(new LoginEvent()));
+    }
+
+    @Test
+    public void testFormatAll() {
+        final DataFormatRouter<Event> router = new DataFormatRouter.Builder<Event>()
+                .route(LoginEvent.class, LOGIN_FORMAT)
+                .route(ErrorEvent.class, ERROR_FORMAT)
+                .build();
+        final List<Event> events = Arrays.asList(new LoginEvent(), new ErrorEvent(), new AdminLoginEvent());
+
+        assertEquals(Arrays.asList("login alice", "error 500", "login root"), router.formatAll(events));
+    }
+
+    @Test
+    public void testBuilder__errors() {
+        assertThrows(IllegalArgumentException.class, () -> new DataFormatRouter.Builder<Event>()
+                .route(LoginEvent.class, LOGIN_FORMAT)
+                .route(LoginEvent.class, ERROR_FORMAT));
+        assertThrows(IllegalStateException.class, () -> new DataFormatRouter.Builder<Event>()
+                .routeByDiscriminator("error", ERROR_FORMAT, (element, key) -> 404)
+                .build());
+    }
+}
@@ -155,6 +155,22 @@ public class DataFormatTest {
         assertEquals(expected, actual);
     }
 
+    @ParameterizedTest
+    @CsvSource({
+            "LEFT",
+            "RIGHT"
+    })
+    public void testPadding__without_width(final ValuePadding padding) {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("value='")
+                .string("key", padding)
+                .constant("'")
+                .build();
+
+        assertEquals("value='test'", dataFormat.format(key -> "test"));
+        assertEquals("value='test'", dataFormat.format(key -> "test", fieldName -> null));
+    }
+
     static class DummyProvider implements ValueProvider {
         @Override
         public String get(String key) {
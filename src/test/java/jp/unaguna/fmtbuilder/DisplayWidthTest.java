@@ -0,0 +1,81 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DisplayWidthTest {
+    @ParameterizedTest
+    @CsvSource({
+            "abc, 3",
+            "日本語, 6",
+            "ｱｲｳ, 3",
+            "Ａ1, 3",
+            "한국, 4",
+            "😀x, 3",
+            "𠀋, 2",
+            "é, 1",
+            "が, 2",
+            "a​b, 2",
+            "éß, 2",
+    })
+    public void testWidth__east_asian(final String value, final int expected) {
+        assertEquals(expected, DisplayWidth.EAST_ASIAN.width(value));
+    }
+
+    @Test
+    public void testWidth__range() {
+        assertEquals(5, DisplayWidth.EAST_ASIAN.width("ab日本cd", 1, 4));
+        assertEquals(3, DisplayWidth.LENGTH.width("ab日本cd", 1, 4));
+        assertEquals(4, DisplayWidth.LENGTH.width("日本語x"));
+    }
+
+    @Test
+    public void testTable__east_asian() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("name", ValuePadding.RIGHT)
+                .constant("|")
+                .string("city", ValuePadding.LEFT)
+                .constant("|")
+                .displayWidth(DisplayWidth.EAST_ASIAN)
+                .build();
+        final List<ValueProvider> data = Arrays.asList(
+                key -> key.equals("name") ? "山田" : "Tokyo",
+                key -> key.equals("name") ? "Smith" : "大阪市");
+
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> iterator
+                = new TableDataFormatIteratorWithoutAdapter<>(dataFormat, data.iterator());
+
+        assertEquals("山田 | Tokyo|", iterator.next());
+        assertEquals("Smith|大阪市|", iterator.next());
+    }
+
+    @Test
+    public void testTable__for_variable_with_renderer_and_escaping() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("name", ValuePadding.LEFT)
+                .constant("|")
+                .string("note", ValuePadding.RIGHT)
+                .constant("|")
+                .displayWidth("name", DisplayWidth.EAST_ASIAN)
+                .renderers("name", new ValueRendererRegistry()
+                        .register(String.class, (value, stringBuilder) -> stringBuilder.append(value).append('!')))
+                .escaping("note", ValueEscaping.CSV)
+                .build();
+        final List<ValueProvider> data = Arrays.asList(
+                key -> key.equals("name") ? "山田" : "a,b",
+                key -> key.equals("name") ? "Smith" : "あい");
+
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> iterator
+                = new TableDataFormatIteratorWithoutAdapter<>(dataFormat, data.iterator());
+
+        // the width of "note" is counted in UTF-16 code units
+        assertEquals(" 山田!|\"a,b\"|", iterator.next());
+        assertEquals("Smith!|あい   |", iterator.next());
+    }
+}
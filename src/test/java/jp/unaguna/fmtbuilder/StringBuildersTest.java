@@ -0,0 +1,19 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static jp.unaguna.fmtbuilder.TestUtils.repeat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringBuildersTest {
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, 1, 63, 64, 65, 200})
+    public void testAppendRepeated(final int count) {
+        final StringBuilder stringBuilder = new StringBuilder("head");
+        StringBuilders.appendRepeated(stringBuilder, ' ', count);
+        StringBuilders.appendRepeated(stringBuilder, '-', count);
+
+        assertEquals("head" + repeat(' ', count) + repeat('-', count), stringBuilder.toString());
+    }
+}
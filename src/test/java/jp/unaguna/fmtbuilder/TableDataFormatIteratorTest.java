@@ -5,9 +5,14 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
+import static jp.unaguna.fmtbuilder.TestUtils.lines;
+import static jp.unaguna.fmtbuilder.TestUtils.repeat;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TableDataFormatIteratorTest {
@@ -183,11 +188,335 @@ public class TableDataFormatIteratorTest {
         assertFalse(tableDataFormatIterator.hasNext());
     }
 
-    private String repeat(final Object base, final int num) {
-        final StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < num; i++) {
-            builder.append(base);
+    @ParameterizedTest
+    @ValueSource(ints = {3, -1})
+    public void testProjectionBuffering(int blockSize) {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .constant(" ")
+                .string("key2", ValuePadding.RIGHT)
+                .constant(" ")
+                .string("key1")
+                .build();
+        final List<Integer> data = new ArrayList<>();
+        data.add(1);
+        data.add(2);
+        data.add(3);
+        data.add(3);
+
+        final int[] calls = new int[1];
+        final ValueProviderAdapter<Integer> adapter = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> {
+                    calls[0]++;
+                    return "key" + repeat("1", i);
+                })
+                .addProvider("key2", i -> "key" + repeat("22", i))
+                .build();
+
+        final TableDataFormatIterator<Integer> tableDataFormatIterator
+                = new TableDataFormatIterator<>(
+                        dataFormat,
+                        data.iterator(),
+                        adapter
+                );
+        tableDataFormatIterator.setProjectionBuffering(true);
+        if (blockSize > 0) {
+            tableDataFormatIterator.setBlockSize(blockSize);
+        }
+        assertTrue(tableDataFormatIterator.isProjectionBuffering());
+
+        final List<String> actualLines = lines(tableDataFormatIterator);
+        assertEquals(data.size(), actualLines.size());
+        assertEquals("  key1 key22     key1", actualLines.get(0));
+        assertEquals(" key11 key2222   key11", actualLines.get(1));
+        assertEquals("key111 key222222 key111", actualLines.get(2));
+        assertEquals("key111 key222222 key111", actualLines.get(3));
+        // each value is retrieved only once per data
+        assertEquals(data.size(), calls[0]);
+    }
+
+    @Test
+    public void testProjectionBuffering__high_cardinality() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("id", ValuePadding.LEFT)
+                .constant(" ")
+                .string("status")
+                .build();
+        final int dataSize = ProjectedRowBuffer.MAX_DICTIONARY_SIZE * 3;
+        final List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < dataSize; i++) {
+            data.add(i);
+        }
+
+        final ValueProviderAdapter<Integer> adapter = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("id", i -> i)
+                .addProvider("status", i -> i % 2 == 0 ? "OK" : "NG")
+                .build();
+
+        final TableDataFormatIterator<Integer> tableDataFormatIterator
+                = new TableDataFormatIterator<>(
+                        dataFormat,
+                        data.iterator(),
+                        adapter
+                );
+        tableDataFormatIterator.setProjectionBuffering(true);
+
+        for (int i = 0; i < dataSize; i++) {
+            final String expected = repeat(" ", 3 - String.valueOf(i).length()) + i + " " + (i % 2 == 0 ? "OK" : "NG");
+            assertEquals(expected, tableDataFormatIterator.next());
+        }
+        assertFalse(tableDataFormatIterator.hasNext());
+    }
+
+    @Test
+    public void testProjectedRowBuffer__dictionary_encoding() {
+        final ProjectedRowBuffer buffer = new ProjectedRowBuffer(Arrays.asList("id", "status", "id"));
+        for (int i = 0; i <= ProjectedRowBuffer.MAX_DICTIONARY_SIZE; i++) {
+            final int id = i;
+            buffer.add(key -> key.equals("id") ? id : "OK");
+        }
+
+        assertFalse(buffer.isDictionaryEncoded("id"));
+        assertTrue(buffer.isDictionaryEncoded("status"));
+        assertEquals(ProjectedRowBuffer.MAX_DICTIONARY_SIZE + 1, buffer.size());
+        assertEquals(ProjectedRowBuffer.MAX_DICTIONARY_SIZE, buffer.row(ProjectedRowBuffer.MAX_DICTIONARY_SIZE).get("id"));
+        assertEquals(3, buffer.row(3).get("id"));
+        assertEquals("OK", buffer.row(3).get("status"));
+        assertSame(ValueProvider.MISSING, buffer.row(3).find("unknown"));
+
+        buffer.clear();
+        buffer.add(key -> key.equals("id") ? 0 : "NG");
+        assertTrue(buffer.isDictionaryEncoded("id"));
+        assertEquals("NG", buffer.row(0).get("status"));
+    }
+
+    @Test
+    public void testBlockByteBudget() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .build();
+        final List<ValueProvider> data = new ArrayList<>();
+        data.add(key -> "a");
+        data.add(key -> "a");
+        data.add(key -> "a");
+        data.add(key -> "bbbbb");
+
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> tableDataFormatIterator
+                = new TableDataFormatIteratorWithoutAdapter<>(
+                dataFormat,
+                data.iterator()
+        );
+        // each of the first three data is estimated at about 60 bytes
+        tableDataFormatIterator.setBlockByteBudget(150);
+        assertEquals(150, tableDataFormatIterator.getBlockByteBudget());
+
+        assertEquals("a", tableDataFormatIterator.next());
+        assertEquals("a", tableDataFormatIterator.next());
+        assertEquals("a", tableDataFormatIterator.next());
+        assertEquals("bbbbb", tableDataFormatIterator.next());
+        assertFalse(tableDataFormatIterator.hasNext());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, -1})
+    public void testBlockByteBudget__error_with_non_positive(long blockByteBudget) {
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> tableDataFormatIterator
+                = new TableDataFormatIteratorWithoutAdapter<>(
+                new DataFormat.Builder().build(),
+                new ArrayList<ValueProvider>().iterator()
+        );
+
+        assertThrows(IllegalArgumentException.class,
+                () -> tableDataFormatIterator.setBlockByteBudget(blockByteBudget));
+    }
+
+    @Test
+    public void testAdaptiveBlockSize() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .build();
+        final int firstBlock = TableDataFormatIterator.INITIAL_ADAPTIVE_BLOCK_SIZE;
+        final List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < firstBlock; i++) {
+            data.add(1);
+        }
+        for (int i = 0; i < firstBlock * 4; i++) {
+            data.add(2);
+        }
+
+        final ValueProviderAdapter<Integer> adapter = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> repeat("x", i))
+                .build();
+        final TableDataFormatIterator<Integer> tableDataFormatIterator
+                = new TableDataFormatIterator<>(
+                        dataFormat,
+                        data.iterator(),
+                        adapter
+                );
+        tableDataFormatIterator.setAdaptiveBlockSize(true);
+        assertTrue(tableDataFormatIterator.isAdaptiveBlockSize());
+        assertEquals(firstBlock, tableDataFormatIterator.currentBlockLimit());
+
+        // there is no previous block to compare with; the limit is not changed
+        tableDataFormatIterator.next();
+        assertEquals(firstBlock, tableDataFormatIterator.currentBlockLimit());
+        for (int i = 1; i < firstBlock; i++) {
+            assertEquals("x", tableDataFormatIterator.next());
+        }
+
+        // the widths change from the previous block; the next block becomes larger
+        tableDataFormatIterator.next();
+        assertEquals(firstBlock * 2, tableDataFormatIterator.currentBlockLimit());
+        for (int i = 1; i < firstBlock; i++) {
+            assertEquals("xx", tableDataFormatIterator.next());
+        }
+
+        // the widths are stable; the next block becomes smaller
+        tableDataFormatIterator.next();
+        assertEquals(firstBlock, tableDataFormatIterator.currentBlockLimit());
+        for (int i = 1; i < firstBlock * 2; i++) {
+            assertEquals("xx", tableDataFormatIterator.next());
+        }
+
+        // limited by the byte budget
+        tableDataFormatIterator.setBlockByteBudget(1000);
+        tableDataFormatIterator.next();
+        assertEquals(TableDataFormatIterator.MIN_ADAPTIVE_BLOCK_SIZE, tableDataFormatIterator.currentBlockLimit());
+    }
+
+    @Test
+    public void testAdaptiveBlockSize__stable_from_first_block() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .build();
+        final int firstBlock = TableDataFormatIterator.INITIAL_ADAPTIVE_BLOCK_SIZE;
+        final List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < firstBlock * 2; i++) {
+            data.add(1);
+        }
+
+        final ValueProviderAdapter<Integer> adapter = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> repeat("x", i))
+                .build();
+        final TableDataFormatIterator<Integer> tableDataFormatIterator
+                = new TableDataFormatIterator<>(
+                        dataFormat,
+                        data.iterator(),
+                        adapter
+                );
+        tableDataFormatIterator.setAdaptiveBlockSize(true);
+
+        // the first block only records the widths
+        tableDataFormatIterator.next();
+        assertEquals(firstBlock, tableDataFormatIterator.currentBlockLimit());
+        for (int i = 1; i < firstBlock; i++) {
+            tableDataFormatIterator.next();
         }
-        return builder.toString();
+
+        // the second block has the same widths as the first one
+        tableDataFormatIterator.next();
+        assertEquals(firstBlock / 2, tableDataFormatIterator.currentBlockLimit());
+    }
+
+    @Test
+    public void testAdaptiveBlockSize__growing_widths() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .build();
+        // the maximum width in each block grows by one since each block doubles the number of data
+        final int dataSize = 200_000;
+        final ValueProviderAdapter<Integer> adapter = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> repeat("x", 32 - Integer.numberOfLeadingZeros(i)))
+                .build();
+        final TableDataFormatIterator<Integer> tableDataFormatIterator
+                = new TableDataFormatIterator<>(
+                        dataFormat,
+                        IntStream.range(0, dataSize).boxed().iterator(),
+                        adapter
+                );
+        tableDataFormatIterator.setAdaptiveBlockSize(true);
+
+        int maxLimit = 0;
+        int count = 0;
+        while (tableDataFormatIterator.hasNext()) {
+            tableDataFormatIterator.next();
+            count++;
+            maxLimit = Math.max(maxLimit, tableDataFormatIterator.currentBlockLimit());
+        }
+        assertEquals(dataSize, count);
+        assertEquals(TableDataFormatIterator.MAX_ADAPTIVE_BLOCK_SIZE, maxLimit);
+    }
+
+    @Test
+    public void testTop() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("latency", ValuePadding.LEFT)
+                .constant(" ")
+                .string("path")
+                .build();
+        final List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            data.add((i * 37) % 1000);
+        }
+
+        final ValueProviderAdapter<Integer> adapter = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("latency", i -> i)
+                .addProvider("path", i -> "/p" + i)
+                .build();
+        final TableDataFormatIterator<Integer> tableDataFormatIterator = TableDataFormatIterator.top(
+                dataFormat, data.iterator(), adapter, Comparator.<Integer>reverseOrder(), 3);
+
+        assertEquals("999 /p999", tableDataFormatIterator.next());
+        assertEquals("998 /p998", tableDataFormatIterator.next());
+        assertEquals("997 /p997", tableDataFormatIterator.next());
+        assertFalse(tableDataFormatIterator.hasNext());
+    }
+
+    @Test
+    public void testTop__widths_of_retained_data() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .constant("|")
+                .build();
+        final List<String> data = Arrays.asList("bb", "a", "long value", "ccc");
+
+        final ValueProviderAdapter<String> adapter = new ValueProviderAdapter.Builder<String>()
+                .addProvider("key1", v -> v)
+                .build();
+        final TableDataFormatIterator<String> tableDataFormatIterator = TableDataFormatIterator.top(
+                dataFormat, data.iterator(), adapter, Comparator.comparingInt(String::length), 2);
+
+        assertEquals(" a|", tableDataFormatIterator.next());
+        assertEquals("bb|", tableDataFormatIterator.next());
+        assertFalse(tableDataFormatIterator.hasNext());
+    }
+
+    @Test
+    public void testSorted() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.RIGHT)
+                .constant("|")
+                .build();
+        final List<String> data = Arrays.asList("c", "aaa", "b");
+
+        final ValueProviderAdapter<String> adapter = new ValueProviderAdapter.Builder<String>()
+                .addProvider("key1", v -> v)
+                .build();
+        final TableDataFormatIterator<String> tableDataFormatIterator = TableDataFormatIterator.sorted(
+                dataFormat, data.iterator(), adapter, Comparator.naturalOrder());
+
+        final List<String> actualLines = new ArrayList<>();
+        tableDataFormatIterator.forEachRemaining(actualLines::add);
+        assertEquals(Arrays.asList("aaa|", "b  |", "c  |"), actualLines);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    public void testTop__error_with_non_positive(int limit) {
+        final ValueProviderAdapter<String> adapter = new ValueProviderAdapter.Builder<String>().build();
+
+        assertThrows(IllegalArgumentException.class, () -> TableDataFormatIterator.top(
+                new DataFormat.Builder().build(), new ArrayList<String>().iterator(), adapter,
+                Comparator.<String>naturalOrder(), limit));
     }
 }
@@ -0,0 +1,185 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static jp.unaguna.fmtbuilder.TestUtils.repeat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TableDataFormatSinkTest {
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .string("key1", ValuePadding.LEFT)
+            .constant(" ")
+            .string("key2", ValuePadding.RIGHT)
+            .constant("|")
+            .build();
+
+    private static final ValueProviderAdapter<Integer> ADAPTER = new ValueProviderAdapter.Builder<Integer>()
+            .addProvider("key1", i -> repeat("1", i))
+            .addProvider("key2", i -> repeat("22", i))
+            .build();
+
+    @Test
+    public void testAccept__emit_each_block() throws InterruptedException {
+        final List<String> lines = new ArrayList<>();
+        final TableDataFormatSink<Integer> sink = new TableDataFormatSink<>(DATA_FORMAT, ADAPTER, 2, 4, lines::add);
+
+        sink.accept(1);
+        assertEquals(Collections.emptyList(), lines);
+        assertEquals(1, sink.getPendingCount());
+
+        sink.accept(2);
+        assertEquals(Arrays.asList(" 1 22  |", "11 2222|"), lines);
+        assertEquals(0, sink.getPendingCount());
+
+        sink.accept(3);
+        assertTrue(sink.offer(1));
+        sink.accept(2);
+        assertEquals(Arrays.asList(" 1 22  |", "11 2222|", "111 222222|", "  1 22    |"), lines);
+
+        sink.flush();
+        assertEquals(Arrays.asList(" 1 22  |", "11 2222|", "111 222222|", "  1 22    |", "11 2222|"), lines);
+        assertEquals(0, sink.getPendingCount());
+
+        // flush without pending data emits nothing
+        sink.flush();
+        assertEquals(5, lines.size());
+    }
+
+    @Test
+    public void testOffer__false_when_full() throws InterruptedException {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch emitting = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final TableDataFormatSink<Integer> sink = new TableDataFormatSink<>(DATA_FORMAT, ADAPTER, 2, 3, line -> {
+            emitting.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            lines.add(line);
+        });
+
+        final Thread producer1 = new Thread(() -> {
+            try {
+                sink.accept(1);
+                sink.accept(2);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        producer1.start();
+        assertTrue(emitting.await(10, TimeUnit.SECONDS));
+
+        // the block being emitted is already formatted, so its space is released before the downstream is called
+        assertEquals(0, sink.getPendingCount());
+        assertTrue(sink.offer(3));
+
+        // the completed block waits until the block being emitted ends
+        final Thread producer2 = new Thread(() -> sink.offer(4));
+        producer2.start();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sink.getPendingCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(sink.offer(5));
+        assertEquals(3, sink.getPendingCount());
+        assertFalse(sink.offer(6));
+        assertFalse(sink.offer(6, 10, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        producer1.join(10_000);
+        producer2.join(10_000);
+        assertEquals(Arrays.asList(" 1 22  |", "11 2222|", " 111 222222  |", "1111 22222222|"), lines);
+
+        // 6 completes the block of 5 and 6
+        assertTrue(sink.offer(6, 10, TimeUnit.SECONDS));
+        assertEquals(0, sink.getPendingCount());
+        assertEquals(6, lines.size());
+    }
+
+    @Test
+    public void testAccept__several_producers() throws InterruptedException {
+        final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        final TableDataFormatSink<Integer> sink = new TableDataFormatSink<>(DATA_FORMAT, ADAPTER, 3, 6, lines::add);
+
+        final List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 300; i++) {
+                        sink.accept(i % 3 + 1);
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (final Thread producer : producers) {
+            producer.join(10_000);
+        }
+        sink.flush();
+
+        assertEquals(1200, lines.size());
+        assertEquals(0, sink.getPendingCount());
+    }
+
+    @Test
+    public void testAccept__reentrant_downstream_at_capacity() throws InterruptedException {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1")
+                .build();
+        final List<String> lines = new ArrayList<>();
+        final List<TableDataFormatSink<Integer>> sinkHolder = new ArrayList<>();
+        final TableDataFormatSink<Integer> sink = new TableDataFormatSink<>(dataFormat, ADAPTER, 2, 2, line -> {
+            lines.add(line);
+            if (line.equals("1")) {
+                // the third data exceeds the capacity, but the downstream must not wait for itself
+                try {
+                    for (int i = 3; i <= 5; i++) {
+                        sinkHolder.get(0).accept(i);
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                assertFalse(sinkHolder.get(0).offer(6));
+            }
+        });
+        sinkHolder.add(sink);
+
+        final Thread producer = new Thread(() -> {
+            try {
+                sink.accept(1);
+                sink.accept(2);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        producer.start();
+        producer.join(10_000);
+        assertFalse(producer.isAlive(), "the sink is deadlocked");
+
+        // the block completed by the downstream is emitted after the block being emitted
+        assertEquals(Arrays.asList("1", "11", "111", "1111"), lines);
+        assertEquals(1, sink.getPendingCount());
+        sink.flush();
+        assertEquals(Arrays.asList("1", "11", "111", "1111", "11111"), lines);
+    }
+
+    @Test
+    public void testConstructor__error_with_small_capacity() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TableDataFormatSink<>(DATA_FORMAT, ADAPTER, 0, 1, line -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TableDataFormatSink<>(DATA_FORMAT, ADAPTER, 3, 2, line -> { }));
+    }
+}
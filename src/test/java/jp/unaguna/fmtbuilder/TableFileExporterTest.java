@@ -0,0 +1,142 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static jp.unaguna.fmtbuilder.TestUtils.repeat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TableFileExporterTest {
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .string("key1", ValuePadding.LEFT)
+            .constant("|")
+            .string("key2", ValuePadding.RIGHT)
+            .constant("|")
+            .string("key3")
+            .build();
+    private static final ValueExtractor<Integer> EXTRACTOR = (i, key) -> {
+        switch (key) {
+            case "key1":
+                return i;
+            case "key2":
+                return repeat(i % 3 == 0 ? "あ" : "b", i % 7);
+            default:
+                return repeat("c", i % 5);
+        }
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 1000",
+            "4, 7",
+            "3, 1",
+    })
+    public void testExport(final int parallelism, final int chunkSize) throws IOException {
+        final List<Integer> data = range(100);
+        final Path path = tempDir.resolve("table.txt");
+
+        final TableFileExporter<Integer> exporter = new TableFileExporter<>(DATA_FORMAT, data, EXTRACTOR);
+        exporter.setParallelism(parallelism);
+        exporter.setChunkSize(chunkSize);
+        exporter.setLineSeparator("\n");
+        final long bytes = exporter.export(path);
+
+        final String expected = expectedTable(data);
+        assertEquals(expected, new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, bytes);
+    }
+
+    @Test
+    public void testExportToFiles() throws IOException {
+        final List<Integer> data = range(10);
+        final List<Path> paths = Arrays.asList(
+                tempDir.resolve("table1.txt"), tempDir.resolve("table2.txt"), tempDir.resolve("table3.txt"));
+
+        final TableFileExporter<Integer> exporter = new TableFileExporter<>(DATA_FORMAT, data, EXTRACTOR);
+        exporter.setChunkSize(2);
+        exporter.setLineSeparator("\r\n");
+        exporter.export(paths);
+
+        final String[] expectedLines = expectedTable(data).split("\n");
+        final List<String> actualLines = new ArrayList<>();
+        for (final Path path : paths) {
+            actualLines.addAll(Arrays.asList(
+                    new String(Files.readAllBytes(path), StandardCharsets.UTF_8).split("\r\n")));
+        }
+        assertEquals(Arrays.asList(expectedLines), actualLines);
+        assertEquals(3, Files.readAllLines(paths.get(0)).size());
+        assertEquals(4, Files.readAllLines(paths.get(2)).size());
+    }
+
+    @Test
+    public void testOverwrite() throws IOException {
+        final Path path = tempDir.resolve("table.txt");
+        Files.write(path, repeat("x", 1000).getBytes(StandardCharsets.UTF_8));
+
+        final TableFileExporter<Integer> exporter = new TableFileExporter<>(DATA_FORMAT, range(3), EXTRACTOR);
+        exporter.setLineSeparator("\n");
+        exporter.export(path);
+
+        assertEquals(expectedTable(range(3)), new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        final Path path = tempDir.resolve("table.txt");
+
+        final TableFileExporter<Integer> exporter
+                = new TableFileExporter<>(DATA_FORMAT, Collections.emptyList(), EXTRACTOR);
+        assertEquals(0, exporter.export(path));
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    public void testError() {
+        final TableFileExporter<Integer> exporter = new TableFileExporter<>(DATA_FORMAT, range(10), (i, key) -> {
+            if (i == 5) {
+                throw new IllegalStateException("broken data");
+            }
+            return i;
+        });
+        exporter.setChunkSize(2);
+
+        // the exception thrown in the width pass is propagated as it is, as TableDataFormatIterator does
+        assertThrows(IllegalStateException.class, () -> exporter.export(tempDir.resolve("table.txt")));
+        assertThrows(IllegalArgumentException.class, () -> exporter.setParallelism(0));
+        assertThrows(IllegalArgumentException.class, () -> exporter.setChunkSize(0));
+        assertThrows(IllegalArgumentException.class, () -> exporter.export(Collections.emptyList()));
+    }
+
+    private static String expectedTable(final List<Integer> data) {
+        final TableDataFormatIterator<Integer> iterator
+                = new TableDataFormatIterator<>(DATA_FORMAT, data.iterator(), EXTRACTOR.newAdapter());
+        final StringBuilder builder = new StringBuilder();
+        while (iterator.hasNext()) {
+            iterator.nextFormat(builder);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static List<Integer> range(final int size) {
+        final List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            data.add(i);
+        }
+        return data;
+    }
+}
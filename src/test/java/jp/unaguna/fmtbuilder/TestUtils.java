@@ -0,0 +1,40 @@
+package jp.unaguna.fmtbuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The helpers shared by the tests.
+ */
+final class TestUtils {
+    private TestUtils() {
+    }
+
+    /**
+     * Returns the string which repeats the string representation of the base.
+     *
+     * @param base the object to repeat
+     * @param num the number of repetitions
+     * @return the repeated string
+     */
+    static String repeat(final Object base, final int num) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < num; i++) {
+            builder.append(base);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns all the remaining lines of the iterator.
+     *
+     * @param iterator the iterator of the lines
+     * @return the lines
+     */
+    static List<String> lines(final Iterator<String> iterator) {
+        final List<String> lines = new ArrayList<>();
+        iterator.forEachRemaining(lines::add);
+        return lines;
+    }
+}
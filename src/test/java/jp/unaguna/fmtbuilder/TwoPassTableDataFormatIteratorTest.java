@@ -0,0 +1,71 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static jp.unaguna.fmtbuilder.TestUtils.lines;
+import static jp.unaguna.fmtbuilder.TestUtils.repeat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TwoPassTableDataFormatIteratorTest {
+    @Test
+    public void testPadding() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .constant(" ")
+                .string("key2", ValuePadding.RIGHT)
+                .constant(" ")
+                .string("key3")
+                .build();
+        final List<Integer> data = new ArrayList<>();
+        data.add(1);
+        data.add(2);
+        data.add(3);
+
+        final ValueProviderAdapter<Integer> adapter = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> "key" + repeat("1", i))
+                .addProvider("key2", i -> "key" + repeat("22", i))
+                .addProvider("key3", i -> "key" + repeat("333", i))
+                .build();
+
+        final int[] supplierCalls = {0};
+        final TwoPassTableDataFormatIterator<Integer> tableDataFormatIterator
+                = new TwoPassTableDataFormatIterator<>(
+                        dataFormat,
+                        () -> {
+                            supplierCalls[0]++;
+                            return data.iterator();
+                        },
+                        adapter
+                );
+
+        final List<String> actualLines = lines(tableDataFormatIterator);
+        assertEquals(2, supplierCalls[0]);
+        assertEquals(3, actualLines.size());
+        assertEquals("  key1 key22     key333", actualLines.get(0));
+        assertEquals(" key11 key2222   key333333", actualLines.get(1));
+        assertEquals("key111 key222222 key333333333", actualLines.get(2));
+        assertThrows(NoSuchElementException.class, tableDataFormatIterator::next);
+    }
+
+    @Test
+    public void testEmpty() {
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .build();
+        final List<ValueProvider> data = new ArrayList<>();
+
+        final TwoPassTableDataFormatIterator<ValueProvider> tableDataFormatIterator
+                = new TwoPassTableDataFormatIterator<>(
+                        dataFormat,
+                        data::iterator,
+                        new ValueProviderAdapter.AsIs<>()
+                );
+
+        assertFalse(tableDataFormatIterator.hasNext());
+        assertThrows(NoSuchElementException.class, () -> tableDataFormatIterator.nextFormat(new StringBuilder()));
+    }
+}
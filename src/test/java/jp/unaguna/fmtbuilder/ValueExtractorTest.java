@@ -0,0 +1,100 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueExtractorTest {
+    private static final DataFormat DATA_FORMAT = new DataFormat.Builder()
+            .string("key1")
+            .constant(" ")
+            .string("key2", ValuePadding.LEFT)
+            .build();
+
+    @Test
+    public void testFormat() {
+        final ValueExtractor<Integer> extractor = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> "v" + i)
+                .addProvider("key2", i -> i * 2)
+                .buildExtractor();
+
+        assertEquals("v1 2", DATA_FORMAT.format(1, extractor));
+        assertEquals("head:v3 6", DATA_FORMAT.format(3, extractor, new StringBuilder("head:")).toString());
+        assertEquals("v3   6", DATA_FORMAT.format(3, extractor, key -> 3, new StringBuilder()).toString());
+    }
+
+    @Test
+    public void testFormat__lambda_extractor() {
+        final ValueExtractor<Object> extractor = (element, key) -> key + "=" + element;
+
+        assertEquals("key1=x key2=x", DATA_FORMAT.format("x", extractor));
+    }
+
+    @Test
+    public void testFormat__missing_value() {
+        final ValueExtractor<Integer> extractor = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> "v" + i)
+                .buildExtractor();
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1")
+                .constant(" ")
+                .string("key2")
+                .missingValue(MissingValuePolicy.defaultValue("-"))
+                .build();
+
+        assertEquals("v1 -", dataFormat.format(1, extractor));
+        assertSame(ValueProvider.MISSING, extractor.find(1, "key2"));
+        assertThrows(IllegalArgumentException.class, () -> extractor.get(1, "key2"));
+        assertThrows(DataFormattingException.class, () -> DATA_FORMAT.format(1, extractor));
+    }
+
+    @Test
+    public void testFormat__shared_by_threads() throws Exception {
+        final ValueExtractor<Integer> extractor = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> "v" + i)
+                .addProvider("key2", i -> i * 2)
+                .buildExtractor();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        if (!DATA_FORMAT.format(i, extractor).equals("v" + i + " " + i * 2)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (final Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testNewAdapter() {
+        final ValueExtractor<Integer> extractor = new ValueProviderAdapter.Builder<Integer>()
+                .addProvider("key1", i -> "v" + i)
+                .addProvider("key2", i -> i * 2)
+                .buildExtractor();
+
+        final TableDataFormatIterator<Integer> iterator = new TableDataFormatIterator<>(
+                DATA_FORMAT, Arrays.asList(1, 50).iterator(), extractor.newAdapter());
+
+        assertEquals("v1   2", iterator.next());
+        assertEquals("v50 100", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+}
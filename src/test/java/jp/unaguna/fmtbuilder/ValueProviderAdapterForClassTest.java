@@ -0,0 +1,162 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueProviderAdapterForClassTest {
+    public static class User {
+        private final String name;
+        private final int age;
+        private final boolean active;
+
+        public User(final String name, final int age, final boolean active) {
+            this.name = name;
+            this.age = age;
+            this.active = active;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public String getURL() {
+            return "https://example.com/" + name;
+        }
+
+        public static String getStatic() {
+            return "static";
+        }
+    }
+
+    public static class Admin extends User {
+        public Admin(final String name) {
+            super(name, 40, true);
+        }
+
+        public String getRole() {
+            return "admin";
+        }
+    }
+
+    // record-style accessors
+    static final class Point {
+        private final int x;
+        private final int y;
+
+        Point(final int x, final int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public int x() {
+            return x;
+        }
+
+        public int y() {
+            return y;
+        }
+    }
+
+    private static class Hidden {
+        public String getValue() {
+            return "hidden";
+        }
+    }
+
+    @Test
+    public void testForClass__getters() {
+        final ValueProviderAdapter<User> adapter = ValueProviderAdapter.forClass(User.class);
+        adapter.setElement(new User("alice", 30, true));
+
+        assertEquals("alice", adapter.get("name"));
+        assertEquals(30, adapter.get("age"));
+        assertEquals(true, adapter.get("active"));
+        assertEquals("https://example.com/alice", adapter.get("URL"));
+        assertSame(ValueProvider.MISSING, adapter.find("static"));
+        assertSame(ValueProvider.MISSING, adapter.find("class"));
+        assertThrows(IllegalArgumentException.class, () -> adapter.get("unknown"));
+    }
+
+    @Test
+    public void testForClass__inherited() {
+        final ValueProviderAdapter<Admin> adapter = ValueProviderAdapter.forClass(Admin.class);
+        adapter.setElement(new Admin("bob"));
+
+        assertEquals("bob", adapter.get("name"));
+        assertEquals("admin", adapter.get("role"));
+    }
+
+    @Test
+    public void testForClass__record_style_accessors() {
+        final ValueProviderAdapter<Point> adapter = ValueProviderAdapter.forClass(Point.class);
+        adapter.setElement(new Point(3, 4));
+
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .constant("(").string("x").constant(", ").string("y").constant(")")
+                .build();
+        assertEquals("(3, 4)", dataFormat.format(adapter));
+    }
+
+    @Test
+    public void testForClass__inaccessible_class() {
+        final ValueProviderAdapter<Hidden> adapter = ValueProviderAdapter.forClass(Hidden.class);
+        adapter.setElement(new Hidden());
+
+        assertEquals("hidden", adapter.get("value"));
+    }
+
+    @Test
+    public void testForClass__other_package() {
+        final ValueProviderAdapter<LocalDate> adapter = ValueProviderAdapter.forClass(LocalDate.class);
+        adapter.setElement(LocalDate.of(2024, 2, 29));
+
+        assertEquals(2024, adapter.get("year"));
+        assertEquals(2, adapter.get("monthValue"));
+        assertEquals(true, adapter.get("leapYear"));
+    }
+
+    @Test
+    public void testForClass__adapters_are_independent() {
+        final ValueProviderAdapter<User> adapter1 = ValueProviderAdapter.forClass(User.class);
+        final ValueProviderAdapter<User> adapter2 = ValueProviderAdapter.forClass(User.class);
+        assertNotSame(adapter1, adapter2);
+
+        adapter1.setElement(new User("alice", 30, true));
+        adapter2.setElement(new User("bob", 20, false));
+        assertEquals("alice", adapter1.get("name"));
+        assertEquals("bob", adapter2.get("name"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testForClass__class_of_other_class_loader() throws Exception {
+        final URL classPath = User.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{classPath}, null)) {
+            final Class<Object> userClass = (Class<Object>) classLoader.loadClass(User.class.getName());
+            assertNotSame(User.class, userClass);
+            final Object user = userClass
+                    .getConstructor(String.class, int.class, boolean.class)
+                    .newInstance("carol", 25, false);
+
+            final ValueProviderAdapter<Object> adapter = ValueProviderAdapter.forClass(userClass);
+            adapter.setElement(user);
+
+            assertEquals("carol", adapter.get("name"));
+            assertEquals(25, adapter.get("age"));
+            assertEquals(false, adapter.get("active"));
+        }
+    }
+}
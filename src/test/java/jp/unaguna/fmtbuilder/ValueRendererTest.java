@@ -0,0 +1,154 @@
+package jp.unaguna.fmtbuilder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueRendererTest {
+    enum Level {
+        INFO,
+        WARN {
+            @Override
+            public String toString() {
+                return "warning";
+            }
+        },
+    }
+
+    @Test
+    public void testEnums() {
+        final ValueRenderer<Enum<?>> renderer = ValueRenderers.enums();
+
+        assertEquals("INFO", render(renderer, Level.INFO));
+        assertEquals("warning", render(renderer, Level.WARN));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, -1, -128, -129, 1023, 1024, Long.MAX_VALUE, Long.MIN_VALUE})
+    public void testIntegers(final long value) {
+        final ValueRenderer<Number> renderer = ValueRenderers.integers();
+
+        assertEquals(Long.toString(value), render(renderer, value));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0", "0.00", "12", "12.34", "-12.34", "0.0012", "-0.5", "1E+3", "1.5E-20",
+            "-7", "123456789012345678", "-123456789012345678", "12345678901234567890.123"})
+    public void testBigDecimals(final String value) {
+        final ValueRenderer<BigDecimal> renderer = ValueRenderers.bigDecimals();
+        final BigDecimal bigDecimal = new BigDecimal(value);
+
+        assertEquals(bigDecimal.toPlainString(), render(renderer, bigDecimal));
+    }
+
+    @Test
+    public void testInstant() {
+        final ValueRenderer<Instant> renderer = ValueRenderers.instant(
+                DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"), 3);
+
+        assertEquals("2024-01-02T03:04:05.006", render(renderer, Instant.parse("2024-01-02T03:04:05.006789Z")));
+        assertEquals("2024-01-02T03:04:05.100", render(renderer, Instant.parse("2024-01-02T03:04:05.100Z")));
+        assertEquals("2024-01-02T03:04:06.000", render(renderer, Instant.parse("2024-01-02T03:04:06Z")));
+    }
+
+    @Test
+    public void testLocalDateTime() {
+        final ValueRenderer<LocalDateTime> renderer = ValueRenderers.localDateTime(
+                DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss"), 0);
+
+        assertEquals("2024/01/02 03:04:05", render(renderer, LocalDateTime.of(2024, 1, 2, 3, 4, 5, 999_999_999)));
+        assertEquals("2024/01/02 03:04:06", render(renderer, LocalDateTime.of(2024, 1, 2, 3, 4, 6)));
+    }
+
+    @Test
+    public void testFormat__renderers_for_format() {
+        final ValueRendererRegistry renderers = ValueRendererRegistry.withDefaults()
+                .register(Instant.class, ValueRenderers.instant(DateTimeFormatter.ofPattern("HH:mm:ss"), 0))
+                .register(CharSequence.class, (value, stringBuilder) -> stringBuilder.append('\'').append(value).append('\''));
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("level")
+                .constant(" ")
+                .string("time")
+                .constant(" ")
+                .string("count")
+                .constant(" ")
+                .string("message")
+                .constant(" ")
+                .string("other")
+                .renderers(renderers)
+                .build();
+
+        final String actual = dataFormat.format(key -> {
+            switch (key) {
+                case "level":
+                    return Level.WARN;
+                case "time":
+                    return Instant.parse("2024-01-02T03:04:05Z");
+                case "count":
+                    return 42;
+                case "message":
+                    return "hello";
+                default:
+                    return new StringBuilder("sb");
+            }
+        });
+        assertEquals("warning 03:04:05 42 'hello' 'sb'", actual);
+    }
+
+    @Test
+    public void testFormat__renderers_for_variable() {
+        final ValueRendererRegistry renderers = new ValueRendererRegistry()
+                .register(Integer.class, (value, stringBuilder) -> stringBuilder.append("#").append(value));
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1")
+                .constant(",")
+                .string("key2")
+                .renderers("key2", renderers)
+                .build();
+
+        assertEquals("1,#1", dataFormat.format(key -> 1));
+    }
+
+    @Test
+    public void testFormat__renderers_with_padding_and_escaping() {
+        final ValueRendererRegistry renderers = new ValueRendererRegistry()
+                .register(Integer.class, (value, stringBuilder) -> stringBuilder.append(value).append(",-"));
+        final DataFormat dataFormat = new DataFormat.Builder()
+                .string("key1", ValuePadding.LEFT)
+                .constant("|")
+                .string("key2", ValuePadding.RIGHT)
+                .constant("|")
+                .renderers(renderers)
+                .escaping(ValueEscaping.CSV)
+                .build();
+
+        final List<ValueProvider> data = new ArrayList<>();
+        data.add(key -> 1);
+        data.add(key -> 1000);
+
+        final TableDataFormatIteratorWithoutAdapter<ValueProvider> tableDataFormatIterator
+                = new TableDataFormatIteratorWithoutAdapter<>(
+                dataFormat,
+                data.iterator()
+        );
+
+        assertEquals("   \"1,-\"|\"1,-\"   |", tableDataFormatIterator.next());
+        assertEquals("\"1000,-\"|\"1000,-\"|", tableDataFormatIterator.next());
+    }
+
+    private static <V> String render(final ValueRenderer<V> renderer, final V value) {
+        final StringBuilder stringBuilder = new StringBuilder("head:");
+        renderer.render(value, stringBuilder);
+        return stringBuilder.substring("head:".length());
+    }
+}